@@ -0,0 +1,259 @@
+import java.util.NoSuchElementException;
+
+/**
+ * A hash map from long keys to long values, modeled on HashMapInterface but
+ * without boxing either of them.
+ *
+ * Keys and values live in two parallel flat arrays and the map is probed
+ * linearly like {@link OpenAddressingHashMap}, with backward-shift deletion.
+ * A slot is empty when its key is 0, so the key 0 itself is kept apart from
+ * the table in a field of its own. Lookups and updates of keys that are
+ * already present allocate nothing.
+ *
+ * @author Ziyu Zhang
+ * @version 1.0
+ */
+public class LongLongMap {
+
+    /**
+     * The key that marks an empty slot of the table.
+     */
+    private static final long EMPTY = 0;
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+    private boolean hasEmptyKey;
+    private long emptyKeyValue;
+
+    /**
+     * Create a map with no entries.
+     */
+    public LongLongMap() {
+        keys = new long[HashMapInterface.STARTING_SIZE];
+        values = new long[HashMapInterface.STARTING_SIZE];
+    }
+
+    /**
+     * Adds the given key-value pair to the map. If the key is already in the
+     * map, its value is replaced.
+     *
+     * The backing arrays are regrown before adding, once the new entry would
+     * push the load factor past HashMapInterface.MAX_LOAD_FACTOR, even if
+     * the key is a duplicate.
+     *
+     * Should run in O(1) with a good hash function, O(n) otherwise.
+     *
+     * @param key key to add into the map
+     * @param value value to add into the map
+     * @return 0 if the key was not already in the map, otherwise the
+     * old value associated with it; use contains to tell them apart
+     */
+    public long add(long key, long value) {
+        if (key == EMPTY) {
+            long answer = hasEmptyKey ? emptyKeyValue : 0;
+            if (!hasEmptyKey) {
+                hasEmptyKey = true;
+                size++;
+            }
+            emptyKeyValue = value;
+            return answer;
+        }
+        int stored = hasEmptyKey ? size - 1 : size;
+        if (((double) (stored + 1)) / keys.length
+                > HashMapInterface.MAX_LOAD_FACTOR) {
+            long[] oldKeys = keys;
+            long[] oldValues = values;
+            keys = new long[oldKeys.length * 2 + 1];
+            values = new long[keys.length];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int index = home(oldKeys[i]);
+                    while (keys[index] != EMPTY) {
+                        index = next(index);
+                    }
+                    keys[index] = oldKeys[i];
+                    values[index] = oldValues[i];
+                }
+            }
+        }
+        int index = home(key);
+        while (keys[index] != EMPTY) {
+            if (keys[index] == key) {
+                long answer = values[index];
+                values[index] = value;
+                return answer;
+            }
+            index = next(index);
+        }
+        keys[index] = key;
+        values[index] = value;
+        size++;
+        return 0;
+    }
+
+    /**
+     * Removes the value associated with the key from the map.
+     *
+     * Should run in O(1) with a good hash function, O(n) otherwise.
+     *
+     * @param key the key to remove
+     * @throws java.util.NoSuchElementException if the key does not exist
+     * @return the value previously associated with the key
+     */
+    public long remove(long key) {
+        if (key == EMPTY) {
+            if (!hasEmptyKey) {
+                throw new NoSuchElementException("no such key!");
+            }
+            long answer = emptyKeyValue;
+            hasEmptyKey = false;
+            emptyKeyValue = 0;
+            size--;
+            return answer;
+        }
+        int hole = find(key);
+        if (hole < 0) {
+            throw new NoSuchElementException("no such key!");
+        }
+        long answer = values[hole];
+        size--;
+        // move every key of the cluster that may sit in the hole back into it
+        int index = next(hole);
+        while (keys[index] != EMPTY) {
+            int home = home(keys[index]);
+            if (distance(home, index) >= distance(hole, index)) {
+                keys[hole] = keys[index];
+                values[hole] = values[index];
+                hole = index;
+            }
+            index = next(index);
+        }
+        keys[hole] = EMPTY;
+        values[hole] = 0;
+        return answer;
+    }
+
+    /**
+     * Gets the value associated with the given key.
+     * Should run in O(1) with a good hash function, O(n) otherwise.
+     *
+     * @param key the key to search for
+     * @throws java.util.NoSuchElementException if the key is not in the map
+     * @return the value associated with the given key
+     */
+    public long get(long key) {
+        if (key == EMPTY) {
+            if (!hasEmptyKey) {
+                throw new NoSuchElementException("no such key!");
+            }
+            return emptyKeyValue;
+        }
+        int index = find(key);
+        if (index < 0) {
+            throw new NoSuchElementException("no such key!");
+        }
+        return values[index];
+    }
+
+    /**
+     * Gets the value associated with the given key, without throwing when
+     * the key is missing.
+     * Should run in O(1) with a good hash function, O(n) otherwise.
+     *
+     * @param key the key to search for
+     * @param defaultValue the value to return if the key is not in the map
+     * @return the value associated with the given key, or defaultValue
+     */
+    public long getOrDefault(long key, long defaultValue) {
+        if (key == EMPTY) {
+            return hasEmptyKey ? emptyKeyValue : defaultValue;
+        }
+        int index = find(key);
+        return index < 0 ? defaultValue : values[index];
+    }
+
+    /**
+     * Returns whether or not the key is in the map.
+     * Should run in O(1) with a good hash function, O(n) otherwise.
+     *
+     * @param key the key to search for
+     * @return whether or not the key is in the map
+     */
+    public boolean contains(long key) {
+        return key == EMPTY ? hasEmptyKey : find(key) >= 0;
+    }
+
+    /**
+     * Clears the table and resets it to the default size.
+     * Should be O(1).
+     */
+    public void clear() {
+        keys = new long[HashMapInterface.STARTING_SIZE];
+        values = new long[HashMapInterface.STARTING_SIZE];
+        size = 0;
+        hasEmptyKey = false;
+        emptyKeyValue = 0;
+    }
+
+    /**
+     * Returns the number of entries in the map.
+     * Should be O(1).
+     *
+     * @return number of entries in the map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds the slot that holds key.
+     *
+     * @param key the key to search for, not EMPTY
+     * @return the index of the key, or -1 if it is not in the table
+     */
+    private int find(long key) {
+        int index = home(key);
+        while (keys[index] != EMPTY) {
+            if (keys[index] == key) {
+                return index;
+            }
+            index = next(index);
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the slot a key is stored at when nothing collides with it. The
+     * key is scrambled first so that runs of consecutive ids do not fill
+     * neighbouring slots.
+     *
+     * @param key the key
+     * @return the home index of key
+     */
+    private int home(long key) {
+        return Math.floorMod((int) ((key * 0x9E3779B97F4A7C15L) >>> 32),
+                keys.length);
+    }
+
+    /**
+     * Gets the slot probed after index.
+     *
+     * @param index the current slot
+     * @return the next slot, wrapping around at the end of the table
+     */
+    private int next(int index) {
+        return index + 1 == keys.length ? 0 : index + 1;
+    }
+
+    /**
+     * Gets how many probes it takes to get from one slot to another.
+     *
+     * @param from the first slot
+     * @param to the slot reached
+     * @return the number of steps from from to to, wrapping around
+     */
+    private int distance(int from, int to) {
+        return to >= from ? to - from : to + keys.length - from;
+    }
+}
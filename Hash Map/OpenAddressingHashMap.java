@@ -0,0 +1,200 @@
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A HashMap that uses open addressing with linear probing as its collision
+ * policy.
+ *
+ * Keys and values live in two parallel arrays instead of in MapEntry nodes,
+ * so an entry costs two array slots rather than a whole object, and a probe
+ * walks neighbouring slots instead of following next pointers. A key is
+ * stored at the first free slot at or after its home index. Removing a key
+ * shifts the keys behind it in the same cluster back towards their home
+ * indices (backward-shift deletion), so no tombstones are ever left behind
+ * and lookups never have to probe past deleted slots.
+ *
+ * @author Ziyu Zhang
+ * @version 1.0
+ */
+public class OpenAddressingHashMap<K, V> implements HashMapInterface<K, V> {
+
+    private Object[] keys;
+    private Object[] values;
+    private int size;
+
+    /**
+     * Create a hash map with no entries.
+     */
+    public OpenAddressingHashMap() {
+        keys = new Object[STARTING_SIZE];
+        values = new Object[STARTING_SIZE];
+    }
+
+    @Override
+    public V add(K key, V value) {
+        if (key == null || value == null) {
+            throw new IllegalArgumentException("The input(s) is null!");
+        }
+        if (((double) (size + 1)) / keys.length > MAX_LOAD_FACTOR) {
+            Object[] oldKeys = keys;
+            Object[] oldValues = values;
+            keys = new Object[oldKeys.length * 2 + 1];
+            values = new Object[keys.length];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null) {
+                    int index = home(oldKeys[i]);
+                    while (keys[index] != null) {
+                        index = next(index);
+                    }
+                    keys[index] = oldKeys[i];
+                    values[index] = oldValues[i];
+                }
+            }
+        }
+        int index = home(key);
+        while (keys[index] != null) {
+            if (keys[index].equals(key)) {
+                V answer = (V) values[index];
+                values[index] = value;
+                return answer;
+            }
+            index = next(index);
+        }
+        keys[index] = key;
+        values[index] = value;
+        size++;
+        return null;
+    }
+
+    @Override
+    public V remove(K key) {
+        if (key == null) {
+            throw new IllegalArgumentException("key is null!");
+        }
+        int hole = find(key);
+        if (hole < 0) {
+            throw new NoSuchElementException("no such key!");
+        }
+        V answer = (V) values[hole];
+        size--;
+        // move every key of the cluster that may sit in the hole back into it
+        int index = next(hole);
+        while (keys[index] != null) {
+            int home = home(keys[index]);
+            if (distance(home, index) >= distance(hole, index)) {
+                keys[hole] = keys[index];
+                values[hole] = values[index];
+                hole = index;
+            }
+            index = next(index);
+        }
+        keys[hole] = null;
+        values[hole] = null;
+        return answer;
+    }
+
+    @Override
+    public V get(K key) {
+        if (key == null) {
+            throw new IllegalArgumentException("key is null!");
+        }
+        int index = find(key);
+        if (index < 0) {
+            throw new NoSuchElementException("no such key!");
+        }
+        return (V) values[index];
+    }
+
+    @Override
+    public boolean contains(K key) {
+        if (key == null) {
+            throw new IllegalArgumentException("key is null!");
+        }
+        return find(key) >= 0;
+    }
+
+    @Override
+    public void clear() {
+        keys = new Object[STARTING_SIZE];
+        values = new Object[STARTING_SIZE];
+        size = 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<K> keySet() {
+        Set<K> set = new HashSet<>();
+        for (Object key : keys) {
+            if (key != null) {
+                set.add((K) key);
+            }
+        }
+        return set;
+    }
+
+    @Override
+    public List<V> values() {
+        List<V> list = new ArrayList<>();
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                list.add((V) values[i]);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Finds the slot that holds key.
+     *
+     * @param key the key to search for
+     * @return the index of the key, or -1 if it is not in the map
+     */
+    private int find(Object key) {
+        int index = home(key);
+        while (keys[index] != null) {
+            if (keys[index].equals(key)) {
+                return index;
+            }
+            index = next(index);
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the slot a key is stored at when nothing collides with it.
+     *
+     * @param key the key
+     * @return the home index of key
+     */
+    private int home(Object key) {
+        return Math.floorMod(key.hashCode(), keys.length);
+    }
+
+    /**
+     * Gets the slot probed after index.
+     *
+     * @param index the current slot
+     * @return the next slot, wrapping around at the end of the table
+     */
+    private int next(int index) {
+        return index + 1 == keys.length ? 0 : index + 1;
+    }
+
+    /**
+     * Gets how many probes it takes to get from one slot to another.
+     *
+     * @param from the first slot
+     * @param to the slot reached
+     * @return the number of steps from from to to, wrapping around
+     */
+    private int distance(int from, int to) {
+        return to >= from ? to - from : to + keys.length - from;
+    }
+}
@@ -0,0 +1,101 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the comparator based sorts in Sorting. Subclasses choose
+ * the algorithms and sizes, so that the quadratic sorts are not run at sizes
+ * where a single invocation takes minutes.
+ *
+ * Every invocation copies the prepared input into a working array and
+ * sorts it, so the copy is part of the score; it is the same for every
+ * algorithm. Run with {@code -prof gc} for the allocation rate.
+ *
+ * @author Ziyu Zhang
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public abstract class AbstractComparisonSortBenchmark {
+
+    @Param({"RANDOM", "SORTED", "REVERSED", "FEW_UNIQUE", "ORGAN_PIPE",
+        "SAWTOOTH"})
+    private Distribution distribution;
+
+    private Integer[] input;
+    private Integer[] work;
+    private MethodHandle sort;
+    private boolean randomized;
+    private Random rand;
+
+    /**
+     * Gets the name of the Sorting method to benchmark.
+     *
+     * @return the algorithm parameter
+     */
+    protected abstract String algorithm();
+
+    /**
+     * Gets the number of elements to sort.
+     *
+     * @return the size parameter
+     */
+    protected abstract int size();
+
+    /**
+     * Generates the input and looks up the sort.
+     */
+    @Setup
+    public void setUp() {
+        int size = size();
+        int[] keys = distribution.generate(size, new Random(0x600dc0de));
+        input = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            input[i] = keys[i];
+        }
+        work = new Integer[size];
+        randomized = algorithm().endsWith("uickSort");
+        sort = randomized ? SortingHandles.randomizedSort(algorithm())
+                : SortingHandles.comparisonSort(algorithm());
+        rand = new Random(0x600dc0de);
+    }
+
+    /**
+     * Sorts one copy of the input.
+     *
+     * @param counters comparison counters for this thread
+     * @return the sorted array, so the work is not eliminated
+     * @throws Throwable if the sort throws
+     */
+    @Benchmark
+    public Integer[] sort(ComparisonCounters counters) throws Throwable {
+        System.arraycopy(input, 0, work, 0, work.length);
+        Comparator<Integer> comparator = counters.comparator();
+        if (randomized) {
+            sort.invoke(work, comparator, rand);
+        } else {
+            sort.invoke(work, comparator);
+        }
+        counters.elements += work.length;
+        return work;
+    }
+}
@@ -0,0 +1,56 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Comparator;
+
+/**
+ * Extra JMH counters for the comparison sorts. Both are reported as rates
+ * next to the primary score, so comparisons / elements is the number of
+ * comparisons per element sorted.
+ *
+ * @author Ziyu Zhang
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class ComparisonCounters {
+
+    /**
+     * Comparisons made.
+     */
+    public long comparisons;
+
+    /**
+     * Elements sorted.
+     */
+    public long elements;
+
+    private final Comparator<Integer> comparator = (a, b) -> {
+        comparisons++;
+        return a.compareTo(b);
+    };
+
+    /**
+     * Clears the counters before every iteration.
+     */
+    @Setup(Level.Iteration)
+    public void reset() {
+        comparisons = 0;
+        elements = 0;
+    }
+
+    /**
+     * Natural order comparator that counts every call here, the same way
+     * ComparatorPlus does in the tests.
+     *
+     * @return the counting comparator
+     */
+    Comparator<Integer> comparator() {
+        return comparator;
+    }
+}
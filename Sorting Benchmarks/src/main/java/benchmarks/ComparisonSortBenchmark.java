@@ -0,0 +1,31 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Throughput of the O(n log n) comparator based sorts in Sorting, up to a
+ * million elements so that the parallel sorts run well past their
+ * sequential threshold. See {@link AbstractComparisonSortBenchmark}.
+ *
+ * @author Ziyu Zhang
+ * @version 1.0
+ */
+public class ComparisonSortBenchmark extends AbstractComparisonSortBenchmark {
+
+    @Param({"quickSort", "mergeSort", "timSort", "parallelMergeSort",
+        "parallelQuickSort"})
+    private String algorithm;
+
+    @Param({"100", "10000", "1000000"})
+    private int size;
+
+    @Override
+    protected String algorithm() {
+        return algorithm;
+    }
+
+    @Override
+    protected int size() {
+        return size;
+    }
+}
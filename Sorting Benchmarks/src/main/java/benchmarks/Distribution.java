@@ -0,0 +1,63 @@
+package benchmarks;
+
+import java.util.Random;
+
+/**
+ * Input shapes the sorts are benchmarked on.
+ *
+ * @author Ziyu Zhang
+ * @version 1.0
+ */
+public enum Distribution {
+    RANDOM,
+    SORTED,
+    REVERSED,
+    FEW_UNIQUE,
+    ORGAN_PIPE,
+    SAWTOOTH;
+
+    /**
+     * Number of distinct values in FEW_UNIQUE input.
+     */
+    private static final int FEW = 8;
+
+    /**
+     * Number of ascending teeth in SAWTOOTH input.
+     */
+    private static final int TEETH = 16;
+
+    /**
+     * Generates n keys of this shape.
+     *
+     * @param n the number of keys
+     * @param rand the source of randomness
+     * @return the keys
+     */
+    public int[] generate(int n, Random rand) {
+        int[] keys = new int[n];
+        int tooth = Math.max(1, n / TEETH);
+        for (int i = 0; i < n; i++) {
+            switch (this) {
+            case RANDOM:
+                keys[i] = rand.nextInt();
+                break;
+            case SORTED:
+                keys[i] = i;
+                break;
+            case REVERSED:
+                keys[i] = n - i;
+                break;
+            case FEW_UNIQUE:
+                keys[i] = rand.nextInt(FEW);
+                break;
+            case ORGAN_PIPE:
+                keys[i] = i < n / 2 ? i : n - i;
+                break;
+            default:
+                keys[i] = i % tooth;
+                break;
+            }
+        }
+        return keys;
+    }
+}
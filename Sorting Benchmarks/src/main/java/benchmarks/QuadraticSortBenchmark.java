@@ -0,0 +1,30 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Throughput of the quadratic comparator based sorts in Sorting, at sizes
+ * small enough for a single invocation to finish within an iteration. See
+ * {@link AbstractComparisonSortBenchmark}.
+ *
+ * @author Ziyu Zhang
+ * @version 1.0
+ */
+public class QuadraticSortBenchmark extends AbstractComparisonSortBenchmark {
+
+    @Param({"cocktailShakerSort", "insertionSort", "selectionSort"})
+    private String algorithm;
+
+    @Param({"100", "10000"})
+    private int size;
+
+    @Override
+    protected String algorithm() {
+        return algorithm;
+    }
+
+    @Override
+    protected int size() {
+        return size;
+    }
+}
@@ -0,0 +1,75 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the int radix sorts in Sorting. Every invocation sorts a
+ * fresh copy of the prepared input. Run with {@code -prof gc} for the
+ * allocation rate.
+ *
+ * @author Ziyu Zhang
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RadixSortBenchmark {
+
+    @Param({"100", "10000", "1000000"})
+    private int size;
+
+    @Param({"RANDOM", "SORTED", "REVERSED", "FEW_UNIQUE", "ORGAN_PIPE",
+        "SAWTOOTH"})
+    private Distribution distribution;
+
+    @Param({"1", "4"})
+    private int parallelism;
+
+    private int[] input;
+    private int[] work;
+    private MethodHandle sequential;
+    private MethodHandle parallel;
+
+    /**
+     * Generates the input and looks up the sorts.
+     */
+    @Setup
+    public void setUp() {
+        input = distribution.generate(size, new Random(0x600dc0de));
+        work = new int[size];
+        sequential = SortingHandles.intSort("radixSort");
+        parallel = SortingHandles.parallelIntSort("radixSort");
+    }
+
+    /**
+     * Sorts one copy of the input.
+     *
+     * @return the sorted array, so the work is not eliminated
+     * @throws Throwable if the sort throws
+     */
+    @Benchmark
+    public int[] radixSort() throws Throwable {
+        System.arraycopy(input, 0, work, 0, size);
+        if (parallelism == 1) {
+            return (int[]) sequential.invoke(work);
+        }
+        return (int[]) parallel.invoke(work, parallelism);
+    }
+}
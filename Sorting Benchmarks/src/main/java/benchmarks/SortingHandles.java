@@ -0,0 +1,103 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Comparator;
+import java.util.Random;
+
+/**
+ * Method handles for the static methods of Sorting.
+ *
+ * Sorting lives in the unnamed package, which JMH benchmarks cannot, and a
+ * class in a named package cannot refer to it by name. The handles are
+ * looked up once and invoked from the benchmarks; the cost of one handle
+ * call per sort is negligible next to the sort itself.
+ *
+ * @author Ziyu Zhang
+ * @version 1.0
+ */
+final class SortingHandles {
+
+    private static final Class<?> SORTING = load();
+
+    /**
+     * Handle for {@code void name(Object[], Comparator)}.
+     *
+     * @param name the method name
+     * @return the handle
+     */
+    static MethodHandle comparisonSort(String name) {
+        return find(name, MethodType.methodType(void.class, Object[].class,
+                Comparator.class));
+    }
+
+    /**
+     * Handle for {@code void name(Object[], Comparator, Random)}.
+     *
+     * @param name the method name
+     * @return the handle
+     */
+    static MethodHandle randomizedSort(String name) {
+        return find(name, MethodType.methodType(void.class, Object[].class,
+                Comparator.class, Random.class));
+    }
+
+    /**
+     * Handle for {@code int[] name(int[])}.
+     *
+     * @param name the method name
+     * @return the handle
+     */
+    static MethodHandle intSort(String name) {
+        return find(name, MethodType.methodType(int[].class, int[].class));
+    }
+
+    /**
+     * Handle for {@code int[] name(int[], int)}.
+     *
+     * @param name the method name
+     * @return the handle
+     */
+    static MethodHandle parallelIntSort(String name) {
+        return find(name, MethodType.methodType(int[].class, int[].class,
+                int.class));
+    }
+
+    /**
+     * Looks up a public static method of Sorting.
+     *
+     * @param name the method name
+     * @param type the method type
+     * @return the handle
+     */
+    private static MethodHandle find(String name, MethodType type) {
+        try {
+            return MethodHandles.publicLookup().findStatic(SORTING, name,
+                    type);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Sorting." + name + type
+                    + " not found", e);
+        }
+    }
+
+    /**
+     * Loads Sorting from the unnamed package.
+     *
+     * @return the Sorting class
+     */
+    private static Class<?> load() {
+        try {
+            return Class.forName("Sorting");
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Sorting is not on the classpath",
+                    e);
+        }
+    }
+
+    /**
+     * No instances.
+     */
+    private SortingHandles() {
+    }
+}
@@ -0,0 +1,19 @@
+/**
+ * Compares two doubles without boxing them, for the double[] overloads of the
+ * comparison sorts in {@link Sorting}.
+ *
+ * @author Ziyu Zhang
+ * @version 1.0
+ */
+public interface DoubleComparator {
+
+    /**
+     * Compares two doubles for order.
+     *
+     * @param a the first double
+     * @param b the second double
+     * @return a negative number, zero or a positive number as a is less
+     * than, equal to or greater than b
+     */
+    int compare(double a, double b);
+}
@@ -0,0 +1,382 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * External merge sort for files of fixed-width records that do not fit in
+ * memory.
+ *
+ * The input is read through a FileChannel one run at a time. Every run is
+ * sorted in memory by merge sorting an int array of record indices, then
+ * rearranged in place by following the cycles of the sorted indices and
+ * spilled to a temp file. No per-record objects are created, so a run takes
+ * about runRecords * (recordSize + 8) bytes. The runs are merged fanIn at a
+ * time with a {@link MinHeap} of run cursors until the last merge can
+ * stream straight into the output channel, in about runRecords * recordSize
+ * bytes of blocks.
+ *
+ * Records are handed to the comparator as buffers positioned at 0 with a
+ * limit of recordSize, so comparators should use the absolute get methods,
+ * for example {@code (a, b) -> Long.compare(a.getLong(0), b.getLong(0))}.
+ * The sort is stable.
+ *
+ * This class relies on MinHeap from the heap and priority queue
+ * implementation being on the classpath.
+ *
+ * @author Ziyu Zhang
+ * @version 1.0
+ */
+public class ExternalSort {
+
+    private final int recordSize;
+    private final int runRecords;
+    private final int fanIn;
+    private final Comparator<ByteBuffer> comparator;
+    private final Path tempDir;
+
+    /**
+     * Creates an external sort.
+     *
+     * @throws IllegalArgumentException if comparator or tempDir is null, if
+     * recordSize or runRecords is less than 1, if fanIn is less than 2, or if
+     * a run would not fit in a single ByteBuffer
+     * @param recordSize width of every record in bytes
+     * @param runRecords number of records sorted in memory at a time
+     * @param fanIn maximum number of runs merged at once
+     * @param comparator the Comparator used to compare records
+     * @param tempDir directory the sorted runs are spilled to
+     */
+    public ExternalSort(int recordSize, int runRecords, int fanIn,
+                        Comparator<ByteBuffer> comparator, Path tempDir) {
+        if (comparator == null || tempDir == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        if (recordSize < 1 || runRecords < 1 || fanIn < 2) {
+            throw new IllegalArgumentException("illegal sort parameters!");
+        }
+        if ((long) recordSize * runRecords > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("run too large!");
+        }
+        this.recordSize = recordSize;
+        this.runRecords = runRecords;
+        this.fanIn = fanIn;
+        this.comparator = comparator;
+        this.tempDir = tempDir;
+    }
+
+    /**
+     * Sorts the records of input into output. Temp files are removed before
+     * this method returns, even if it fails.
+     *
+     * @throws IllegalArgumentException if input or output is null, or if the
+     * input length is not a multiple of the record size
+     * @throws IOException if reading, writing or spilling fails
+     * @param input the file to sort, read from its current position to the
+     * end
+     * @param output the channel the sorted records are written to
+     */
+    public void sort(FileChannel input, WritableByteChannel output)
+        throws IOException {
+        if (input == null || output == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        List<Path> temps = new ArrayList<>();
+        List<Path> runs = new ArrayList<>();
+        try {
+            ByteBuffer chunk = ByteBuffer.allocateDirect(recordSize
+                    * runRecords);
+            RunSorter sorter = new RunSorter(chunk);
+            boolean first = true;
+            while (true) {
+                int count = readRun(input, chunk);
+                if (count == 0) {
+                    break;
+                }
+                sorter.sort(count);
+                if (first && count < runRecords) {
+                    // the whole input fits in one run
+                    flush(output, chunk);
+                    return;
+                }
+                first = false;
+                Path run = Files.createTempFile(tempDir, "run", ".tmp");
+                temps.add(run);
+                runs.add(run);
+                try (FileChannel out = FileChannel.open(run,
+                        StandardOpenOption.WRITE)) {
+                    flush(out, chunk);
+                }
+            }
+            while (runs.size() > fanIn) {
+                List<Path> merged = new ArrayList<>();
+                for (int i = 0; i < runs.size(); i += fanIn) {
+                    List<Path> group = runs.subList(i,
+                            Math.min(i + fanIn, runs.size()));
+                    Path run = Files.createTempFile(tempDir, "run", ".tmp");
+                    temps.add(run);
+                    merged.add(run);
+                    try (FileChannel out = FileChannel.open(run,
+                            StandardOpenOption.WRITE)) {
+                        merge(group, out);
+                    }
+                    for (Path p : group) {
+                        Files.deleteIfExists(p);
+                    }
+                }
+                runs = merged;
+            }
+            merge(runs, output);
+        } finally {
+            for (Path p : temps) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+
+    /**
+     * Sorts the file at input into a new or truncated file at output.
+     *
+     * @throws IllegalArgumentException if input or output is null, or if the
+     * input length is not a multiple of the record size
+     * @throws IOException if reading, writing or spilling fails
+     * @param input the file to sort
+     * @param output the file to write the sorted records to
+     */
+    public void sort(Path input, Path output) throws IOException {
+        if (input == null || output == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(output,
+                     StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            sort(in, out);
+        }
+    }
+
+    /**
+     * Fills chunk with as many whole records as are left, up to a full run.
+     *
+     * @throws IllegalArgumentException if the input ends inside a record
+     * @throws IOException if reading fails
+     * @param input the channel to read from
+     * @param chunk the run buffer
+     * @return the number of records read
+     */
+    private int readRun(FileChannel input, ByteBuffer chunk)
+        throws IOException {
+        chunk.clear();
+        while (chunk.hasRemaining() && input.read(chunk) >= 0) {
+            // keep reading until the run is full or the input ends
+        }
+        if (chunk.position() % recordSize != 0) {
+            throw new IllegalArgumentException(
+                    "input is not a whole number of records!");
+        }
+        return chunk.position() / recordSize;
+    }
+
+    /**
+     * Merges sorted run files into out.
+     *
+     * @throws IOException if reading or writing fails
+     * @param runs the run files, in input order
+     * @param out the channel to write the merged records to
+     */
+    private void merge(List<Path> runs, WritableByteChannel out)
+        throws IOException {
+        int blockRecords = Math.max(1, runRecords / (runs.size() + 1));
+        List<RunCursor> cursors = new ArrayList<>();
+        try {
+            MinHeap<RunCursor> heap = new MinHeap<>();
+            for (int i = 0; i < runs.size(); i++) {
+                RunCursor cursor = new RunCursor(FileChannel.open(runs.get(i),
+                        StandardOpenOption.READ), i, blockRecords);
+                cursors.add(cursor);
+                if (cursor.advance()) {
+                    heap.add(cursor);
+                }
+            }
+            ByteBuffer outBuffer = ByteBuffer.allocateDirect(blockRecords
+                    * recordSize);
+            while (!heap.isEmpty()) {
+                RunCursor min = heap.remove();
+                if (outBuffer.remaining() < recordSize) {
+                    flush(out, outBuffer);
+                }
+                outBuffer.put(min.record);
+                if (min.advance()) {
+                    heap.add(min);
+                }
+            }
+            flush(out, outBuffer);
+        } finally {
+            for (RunCursor cursor : cursors) {
+                cursor.channel.close();
+            }
+        }
+    }
+
+    /**
+     * Writes everything in buffer to out and clears it.
+     *
+     * @throws IOException if writing fails
+     * @param out the channel to write to
+     * @param buffer the buffer to drain
+     */
+    private static void flush(WritableByteChannel out, ByteBuffer buffer)
+        throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Sorts the records of the run buffer in place.
+     *
+     * The comparator sees two reusable record buffers rather than views into
+     * the run, and a record is only copied into one of them when it is not
+     * already there. A merge sort step keeps one of its two records, so most
+     * comparisons copy a single record.
+     */
+    private final class RunSorter implements IntComparator {
+        private final ByteBuffer chunk;
+        private final int[] order;
+        private final int[] scratch;
+        private final ByteBuffer first;
+        private final ByteBuffer second;
+        private int firstIndex;
+        private int secondIndex;
+
+        /**
+         * Creates a sorter for the runs read into chunk.
+         *
+         * @param chunk the run buffer
+         */
+        RunSorter(ByteBuffer chunk) {
+            this.chunk = chunk;
+            this.order = new int[runRecords];
+            this.scratch = new int[runRecords];
+            this.first = ByteBuffer.allocate(recordSize);
+            this.second = ByteBuffer.allocate(recordSize);
+        }
+
+        /**
+         * Stably sorts the first count records of the run buffer.
+         *
+         * @param count number of records in this run
+         */
+        void sort(int count) {
+            firstIndex = -1;
+            secondIndex = -1;
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+                scratch[i] = i;
+            }
+            PrimitiveSorts.mergeSort(scratch, order, 0, count, this);
+            int[] perm = count == order.length ? order
+                    : Arrays.copyOf(order, count);
+            RecordSorts.permute(chunk, 0, recordSize, perm);
+        }
+
+        @Override
+        public int compare(int a, int b) {
+            return comparator.compare(record(a, b), record(b, a));
+        }
+
+        /**
+         * Gets a buffer holding record i, loading it into whichever buffer
+         * does not hold record keep.
+         *
+         * @param i the record wanted
+         * @param keep the other record of the comparison
+         * @return a buffer positioned at 0 holding record i
+         */
+        private ByteBuffer record(int i, int keep) {
+            if (i == firstIndex) {
+                return first.clear();
+            }
+            if (i == secondIndex) {
+                return second.clear();
+            }
+            if (firstIndex != keep) {
+                chunk.get(i * recordSize, first.array());
+                firstIndex = i;
+                return first.clear();
+            }
+            chunk.get(i * recordSize, second.array());
+            secondIndex = i;
+            return second.clear();
+        }
+    }
+
+    /**
+     * Current position in one sorted run during a merge. Cursors are ordered
+     * by their current record and then by run index, which keeps the merge
+     * stable.
+     */
+    private final class RunCursor implements Comparable<RunCursor> {
+        private final FileChannel channel;
+        private final int index;
+        private final ByteBuffer block;
+        private final ByteBuffer record;
+
+        /**
+         * Creates a cursor positioned before the first record of a run.
+         *
+         * @param channel the run file
+         * @param index position of the run in the merge, lower wins ties
+         * @param blockRecords number of records read from the file at a time
+         */
+        RunCursor(FileChannel channel, int index, int blockRecords) {
+            this.channel = channel;
+            this.index = index;
+            this.block = ByteBuffer.allocateDirect(blockRecords * recordSize);
+            this.block.flip();
+            this.record = ByteBuffer.allocate(recordSize);
+        }
+
+        /**
+         * Copies the next record of the run into record.
+         *
+         * @throws IOException if reading fails
+         * @return false if the run is exhausted
+         */
+        boolean advance() throws IOException {
+            if (!block.hasRemaining()) {
+                block.clear();
+                while (block.hasRemaining() && channel.read(block) >= 0) {
+                    // keep reading until the block is full or the run ends
+                }
+                block.flip();
+                if (!block.hasRemaining()) {
+                    return false;
+                }
+            }
+            int end = block.position() + recordSize;
+            int limit = block.limit();
+            block.limit(end);
+            record.clear();
+            record.put(block);
+            record.flip();
+            block.limit(limit);
+            return true;
+        }
+
+        @Override
+        public int compareTo(RunCursor other) {
+            int cmp = comparator.compare(record, other.record);
+            return cmp != 0 ? cmp : Integer.compare(index, other.index);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+/**
+ * Compares two ints without boxing them, for the int[] overloads of the
+ * comparison sorts in {@link Sorting}.
+ *
+ * @author Ziyu Zhang
+ * @version 1.0
+ */
+public interface IntComparator {
+
+    /**
+     * Compares two ints for order.
+     *
+     * @param a the first int
+     * @param b the second int
+     * @return a negative number, zero or a positive number as a is less
+     * than, equal to or greater than b
+     */
+    int compare(int a, int b);
+}
@@ -0,0 +1,19 @@
+/**
+ * Compares two longs without boxing them, for the long[] overloads of the
+ * comparison sorts in {@link Sorting}.
+ *
+ * @author Ziyu Zhang
+ * @version 1.0
+ */
+public interface LongComparator {
+
+    /**
+     * Compares two longs for order.
+     *
+     * @param a the first long
+     * @param b the second long
+     * @return a negative number, zero or a positive number as a is less
+     * than, equal to or greater than b
+     */
+    int compare(long a, long b);
+}
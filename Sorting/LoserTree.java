@@ -0,0 +1,78 @@
+/**
+ * Tournament tree of losers over k sources, used by the k-way merges in
+ * {@link Sorting}.
+ *
+ * The sources are the leaves of a complete binary tree and every internal
+ * node remembers the source that lost the match played there, while the
+ * overall winner is kept separately. After the winner's source has moved on
+ * to its next element only the matches on the path from its leaf to the
+ * root are replayed, which costs one comparison per level, about log2 k.
+ *
+ * The tree does not hold any elements itself: the sources are compared
+ * through an IntComparator on their indices, which must order exhausted
+ * sources after all others and break ties between equal elements by index
+ * if the merge is to be stable.
+ *
+ * @author Ziyu Zhang
+ * @version 1.0
+ */
+final class LoserTree {
+
+    private final int k;
+    private final int[] losers;
+    private final IntComparator sources;
+    private int winner;
+
+    /**
+     * Plays the initial tournament between k sources.
+     *
+     * @param k the number of sources, at least 1
+     * @param sources orders two sources by their current elements
+     */
+    LoserTree(int k, IntComparator sources) {
+        this.k = k;
+        this.losers = new int[k];
+        this.sources = sources;
+        int[] winners = new int[2 * k];
+        for (int s = 0; s < k; s++) {
+            winners[k + s] = s;
+        }
+        for (int node = k - 1; node >= 1; node--) {
+            int a = winners[2 * node];
+            int b = winners[2 * node + 1];
+            if (sources.compare(a, b) <= 0) {
+                winners[node] = a;
+                losers[node] = b;
+            } else {
+                winners[node] = b;
+                losers[node] = a;
+            }
+        }
+        winner = k == 1 ? 0 : winners[1];
+    }
+
+    /**
+     * Gets the source whose current element comes first.
+     *
+     * @return the index of the winning source
+     */
+    int winner() {
+        return winner;
+    }
+
+    /**
+     * Replays the matches of the winning source after its current element
+     * changed.
+     */
+    void replay() {
+        int current = winner;
+        for (int node = (k + current) >>> 1; node >= 1; node >>>= 1) {
+            if (sources.compare(losers[node], current) < 0) {
+                int tmp = losers[node];
+                losers[node] = current;
+                current = tmp;
+            }
+        }
+        winner = current;
+    }
+}
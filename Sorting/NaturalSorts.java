@@ -0,0 +1,664 @@
+import java.util.Random;
+
+/**
+ * The ascending order int[], long[] and double[] sorts behind the primitive
+ * overloads of {@link Sorting} that take no comparator.
+ *
+ * They are the algorithms of {@link PrimitiveSorts} with every comparator
+ * call replaced by the comparison operators, so the natural order never
+ * goes through a comparator call site shared with the argsorts, the record
+ * sorts and user comparators. The int and long introsort and merge sort
+ * finish small ranges with {@link #networkSort(int[], int, int)} instead of
+ * insertion sort, since equal ints or longs cannot be told apart and the
+ * network needs no branches. Doubles are ordered like
+ * {@link Double#compare(double, double)}, with -0.0 before 0.0 and every
+ * NaN after positive infinity, by {@link #less(double, double)}. Arguments
+ * are validated by Sorting.
+ *
+ * @author Ziyu Zhang
+ * @version 1.0
+ */
+final class NaturalSorts {
+
+    /**
+     * Not instantiable.
+     */
+    private NaturalSorts() {
+    }
+
+    /**
+     * Insertion sort of arr[lo, hi) in ascending order.
+     *
+     * @param arr the array to be sorted
+     * @param lo first index, inclusive
+     * @param hi last index, exclusive
+     * @return the number of elements shifted
+     */
+    static long insertionSort(int[] arr, int lo, int hi) {
+        long moves = 0;
+        for (int i = lo; i < hi - 1; i++) {
+            int tmp = arr[i + 1];
+            int k = i;
+            while (k >= lo && tmp < arr[k]) {
+                arr[k + 1] = arr[k];
+                k--;
+            }
+            arr[k + 1] = tmp;
+            moves += i - k;
+        }
+        return moves;
+    }
+
+    /**
+     * Introsort of arr[lo, hi) in ascending order, see
+     * {@link PrimitiveSorts#quickSort(int[], IntComparator,
+     * Random, int, int, int, SortStats)}.
+     *
+     * @param arr the array to be sorted
+     * @param rand the randomizer
+     * @param lo left bound, inclusive
+     * @param hi right bound, exclusive
+     * @param depth partitioning levels left before falling back to heap sort
+     * @param stats where to record partitions and moves, or null
+     */
+    static void quickSort(int[] arr, Random rand, int lo, int hi, int depth,
+                          SortStats stats) {
+        while (hi - lo > Sorting.NETWORK_THRESHOLD) {
+            if (depth-- == 0) {
+                heapSort(arr, lo, hi);
+                return;
+            }
+            long bounds = partition(arr, rand.nextInt(hi - lo) + lo, lo, hi);
+            int lt = (int) (bounds >>> 32);
+            int gt = (int) bounds;
+            if (stats != null) {
+                stats.addPartition(Math.min(lt - lo, hi - gt), hi - lo);
+                stats.addMoves((lt - lo) + (hi - gt));
+                stats.reachDepth(Sorting.introDepth(stats.getLength())
+                        - depth);
+            }
+            if (lt - lo < hi - gt) {
+                quickSort(arr, rand, lo, lt, depth, stats);
+                lo = gt;
+            } else {
+                quickSort(arr, rand, gt, hi, depth, stats);
+                hi = lt;
+            }
+        }
+        networkSort(arr, lo, hi);
+    }
+
+    /**
+     * Three-way partition of arr[lo, hi) around the element at pivotIndex.
+     *
+     * @param arr the array
+     * @param pivotIndex index of the pivot, in [lo, hi)
+     * @param lo left bound, inclusive
+     * @param hi right bound, exclusive
+     * @return the start of the range equal to the pivot in the high half and
+     * its end in the low half
+     */
+    static long partition(int[] arr, int pivotIndex, int lo, int hi) {
+        int pivot = arr[pivotIndex];
+        int lt = lo;
+        int i = lo;
+        int gt = hi;
+        while (i < gt) {
+            int value = arr[i];
+            if (value < pivot) {
+                arr[i++] = arr[lt];
+                arr[lt++] = value;
+            } else if (pivot < value) {
+                arr[i] = arr[--gt];
+                arr[gt] = value;
+            } else {
+                i++;
+            }
+        }
+        return ((long) lt << 32) | gt;
+    }
+
+    /**
+     * Heap sort of arr[lo, hi) in ascending order.
+     *
+     * @param arr the array
+     * @param lo first index, inclusive
+     * @param hi last index, exclusive
+     */
+    static void heapSort(int[] arr, int lo, int hi) {
+        int n = hi - lo;
+        for (int i = (n >>> 1) - 1; i >= 0; i--) {
+            siftDown(arr, lo, i, n);
+        }
+        for (int end = n - 1; end > 0; end--) {
+            int tmp = arr[lo];
+            arr[lo] = arr[lo + end];
+            arr[lo + end] = tmp;
+            siftDown(arr, lo, 0, end);
+        }
+    }
+
+    /**
+     * Moves the element at index i of the max heap stored in
+     * arr[lo, lo + n) down until both children are no greater.
+     *
+     * @param arr the array
+     * @param lo index of the heap root
+     * @param i heap index to sift down
+     * @param n size of the heap
+     */
+    private static void siftDown(int[] arr, int lo, int i, int n) {
+        int item = arr[lo + i];
+        int child = 2 * i + 1;
+        while (child < n) {
+            if (child + 1 < n
+                    && arr[lo + child] < arr[lo + child + 1]) {
+                child++;
+            }
+            if (item >= arr[lo + child]) {
+                break;
+            }
+            arr[lo + i] = arr[lo + child];
+            i = child;
+            child = 2 * i + 1;
+        }
+        arr[lo + i] = item;
+    }
+
+    /**
+     * Stable merge sort of [lo, hi) into dst in ascending order, using src
+     * as scratch. Both arrays must hold the same elements in [lo, hi) when
+     * called.
+     *
+     * @param src scratch copy of the range
+     * @param dst array that holds the sorted range afterwards
+     * @param lo first index, inclusive
+     * @param hi last index, exclusive
+     */
+    static void mergeSort(int[] src, int[] dst, int lo, int hi) {
+        if (hi - lo <= Sorting.NETWORK_THRESHOLD) {
+            networkSort(dst, lo, hi);
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        mergeSort(dst, src, lo, mid);
+        mergeSort(dst, src, mid, hi);
+        if (src[mid] >= src[mid - 1]) {
+            System.arraycopy(src, lo, dst, lo, hi - lo);
+            return;
+        }
+        int i = lo;
+        int j = mid;
+        int out = lo;
+        while (i < mid && j < hi) {
+            if (src[j] < src[i]) {
+                dst[out++] = src[j++];
+            } else {
+                dst[out++] = src[i++];
+            }
+        }
+        if (i < mid) {
+            System.arraycopy(src, i, dst, out, mid - i);
+        } else if (j < hi) {
+            System.arraycopy(src, j, dst, out, hi - j);
+        }
+    }
+
+    /**
+     * Sorts arr[lo, hi) with Batcher's merge exchange network (Knuth,
+     * algorithm 5.2.2M), which works for any length. Every step is a
+     * branch-free min/max compare-exchange, so small ranges are sorted
+     * without the mispredicted branches of insertion sort. The indices a
+     * stage compares come in blocks of p consecutive ones, 2p apart, which
+     * are walked directly, so every stage is a straight run of
+     * compare-exchanges.
+     *
+     * @param arr the array
+     * @param lo left bound, inclusive
+     * @param hi right bound, exclusive
+     */
+    static void networkSort(int[] arr, int lo, int hi) {
+        int n = hi - lo;
+        if (n < 2) {
+            return;
+        }
+        int top = 1 << (31 - Integer.numberOfLeadingZeros(n - 1));
+        for (int p = top; p > 0; p >>= 1) {
+            int q = top;
+            int r = 0;
+            int d = p;
+            while (d > 0) {
+                int end = hi - d;
+                for (int block = lo + r; block < end; block += 2 * p) {
+                    int blockEnd = Math.min(block + p, end);
+                    for (int i = block; i < blockEnd; i++) {
+                        int a = arr[i];
+                        int b = arr[i + d];
+                        arr[i] = Math.min(a, b);
+                        arr[i + d] = Math.max(a, b);
+                    }
+                }
+                d = q - p;
+                q >>= 1;
+                r = p;
+            }
+        }
+    }
+
+    /**
+     * Insertion sort of arr[lo, hi) in ascending order.
+     *
+     * @param arr the array to be sorted
+     * @param lo first index, inclusive
+     * @param hi last index, exclusive
+     * @return the number of elements shifted
+     */
+    static long insertionSort(long[] arr, int lo, int hi) {
+        long moves = 0;
+        for (int i = lo; i < hi - 1; i++) {
+            long tmp = arr[i + 1];
+            int k = i;
+            while (k >= lo && tmp < arr[k]) {
+                arr[k + 1] = arr[k];
+                k--;
+            }
+            arr[k + 1] = tmp;
+            moves += i - k;
+        }
+        return moves;
+    }
+
+    /**
+     * Introsort of arr[lo, hi) in ascending order, see
+     * {@link PrimitiveSorts#quickSort(long[], LongComparator,
+     * Random, int, int, int, SortStats)}.
+     *
+     * @param arr the array to be sorted
+     * @param rand the randomizer
+     * @param lo left bound, inclusive
+     * @param hi right bound, exclusive
+     * @param depth partitioning levels left before falling back to heap sort
+     * @param stats where to record partitions and moves, or null
+     */
+    static void quickSort(long[] arr, Random rand, int lo, int hi, int depth,
+                          SortStats stats) {
+        while (hi - lo > Sorting.NETWORK_THRESHOLD) {
+            if (depth-- == 0) {
+                heapSort(arr, lo, hi);
+                return;
+            }
+            long bounds = partition(arr, rand.nextInt(hi - lo) + lo, lo, hi);
+            int lt = (int) (bounds >>> 32);
+            int gt = (int) bounds;
+            if (stats != null) {
+                stats.addPartition(Math.min(lt - lo, hi - gt), hi - lo);
+                stats.addMoves((lt - lo) + (hi - gt));
+                stats.reachDepth(Sorting.introDepth(stats.getLength())
+                        - depth);
+            }
+            if (lt - lo < hi - gt) {
+                quickSort(arr, rand, lo, lt, depth, stats);
+                lo = gt;
+            } else {
+                quickSort(arr, rand, gt, hi, depth, stats);
+                hi = lt;
+            }
+        }
+        networkSort(arr, lo, hi);
+    }
+
+    /**
+     * Three-way partition of arr[lo, hi) around the element at pivotIndex.
+     *
+     * @param arr the array
+     * @param pivotIndex index of the pivot, in [lo, hi)
+     * @param lo left bound, inclusive
+     * @param hi right bound, exclusive
+     * @return the start of the range equal to the pivot in the high half and
+     * its end in the low half
+     */
+    static long partition(long[] arr, int pivotIndex, int lo, int hi) {
+        long pivot = arr[pivotIndex];
+        int lt = lo;
+        int i = lo;
+        int gt = hi;
+        while (i < gt) {
+            long value = arr[i];
+            if (value < pivot) {
+                arr[i++] = arr[lt];
+                arr[lt++] = value;
+            } else if (pivot < value) {
+                arr[i] = arr[--gt];
+                arr[gt] = value;
+            } else {
+                i++;
+            }
+        }
+        return ((long) lt << 32) | gt;
+    }
+
+    /**
+     * Heap sort of arr[lo, hi) in ascending order.
+     *
+     * @param arr the array
+     * @param lo first index, inclusive
+     * @param hi last index, exclusive
+     */
+    static void heapSort(long[] arr, int lo, int hi) {
+        int n = hi - lo;
+        for (int i = (n >>> 1) - 1; i >= 0; i--) {
+            siftDown(arr, lo, i, n);
+        }
+        for (int end = n - 1; end > 0; end--) {
+            long tmp = arr[lo];
+            arr[lo] = arr[lo + end];
+            arr[lo + end] = tmp;
+            siftDown(arr, lo, 0, end);
+        }
+    }
+
+    /**
+     * Moves the element at index i of the max heap stored in
+     * arr[lo, lo + n) down until both children are no greater.
+     *
+     * @param arr the array
+     * @param lo index of the heap root
+     * @param i heap index to sift down
+     * @param n size of the heap
+     */
+    private static void siftDown(long[] arr, int lo, int i, int n) {
+        long item = arr[lo + i];
+        int child = 2 * i + 1;
+        while (child < n) {
+            if (child + 1 < n
+                    && arr[lo + child] < arr[lo + child + 1]) {
+                child++;
+            }
+            if (item >= arr[lo + child]) {
+                break;
+            }
+            arr[lo + i] = arr[lo + child];
+            i = child;
+            child = 2 * i + 1;
+        }
+        arr[lo + i] = item;
+    }
+
+    /**
+     * Stable merge sort of [lo, hi) into dst in ascending order, using src
+     * as scratch. Both arrays must hold the same elements in [lo, hi) when
+     * called.
+     *
+     * @param src scratch copy of the range
+     * @param dst array that holds the sorted range afterwards
+     * @param lo first index, inclusive
+     * @param hi last index, exclusive
+     */
+    static void mergeSort(long[] src, long[] dst, int lo, int hi) {
+        if (hi - lo <= Sorting.NETWORK_THRESHOLD) {
+            networkSort(dst, lo, hi);
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        mergeSort(dst, src, lo, mid);
+        mergeSort(dst, src, mid, hi);
+        if (src[mid] >= src[mid - 1]) {
+            System.arraycopy(src, lo, dst, lo, hi - lo);
+            return;
+        }
+        int i = lo;
+        int j = mid;
+        int out = lo;
+        while (i < mid && j < hi) {
+            if (src[j] < src[i]) {
+                dst[out++] = src[j++];
+            } else {
+                dst[out++] = src[i++];
+            }
+        }
+        if (i < mid) {
+            System.arraycopy(src, i, dst, out, mid - i);
+        } else if (j < hi) {
+            System.arraycopy(src, j, dst, out, hi - j);
+        }
+    }
+
+    /**
+     * Sorts arr[lo, hi) with a merge exchange network, see
+     * {@link #networkSort(int[], int, int)}.
+     *
+     * @param arr the array
+     * @param lo left bound, inclusive
+     * @param hi right bound, exclusive
+     */
+    static void networkSort(long[] arr, int lo, int hi) {
+        int n = hi - lo;
+        if (n < 2) {
+            return;
+        }
+        int top = 1 << (31 - Integer.numberOfLeadingZeros(n - 1));
+        for (int p = top; p > 0; p >>= 1) {
+            int q = top;
+            int r = 0;
+            int d = p;
+            while (d > 0) {
+                int end = hi - d;
+                for (int block = lo + r; block < end; block += 2 * p) {
+                    int blockEnd = Math.min(block + p, end);
+                    for (int i = block; i < blockEnd; i++) {
+                        long a = arr[i];
+                        long b = arr[i + d];
+                        arr[i] = Math.min(a, b);
+                        arr[i + d] = Math.max(a, b);
+                    }
+                }
+                d = q - p;
+                q >>= 1;
+                r = p;
+            }
+        }
+    }
+
+    /**
+     * Insertion sort of arr[lo, hi) in ascending order.
+     *
+     * @param arr the array to be sorted
+     * @param lo first index, inclusive
+     * @param hi last index, exclusive
+     * @return the number of elements shifted
+     */
+    static long insertionSort(double[] arr, int lo, int hi) {
+        long moves = 0;
+        for (int i = lo; i < hi - 1; i++) {
+            double tmp = arr[i + 1];
+            int k = i;
+            while (k >= lo && less(tmp, arr[k])) {
+                arr[k + 1] = arr[k];
+                k--;
+            }
+            arr[k + 1] = tmp;
+            moves += i - k;
+        }
+        return moves;
+    }
+
+    /**
+     * Introsort of arr[lo, hi) in ascending order, see
+     * {@link PrimitiveSorts#quickSort(double[], DoubleComparator,
+     * Random, int, int, int, SortStats)}.
+     *
+     * @param arr the array to be sorted
+     * @param rand the randomizer
+     * @param lo left bound, inclusive
+     * @param hi right bound, exclusive
+     * @param depth partitioning levels left before falling back to heap sort
+     * @param stats where to record partitions and moves, or null
+     */
+    static void quickSort(double[] arr, Random rand, int lo, int hi, int depth,
+                          SortStats stats) {
+        while (hi - lo > Sorting.INSERTION_THRESHOLD) {
+            if (depth-- == 0) {
+                heapSort(arr, lo, hi);
+                return;
+            }
+            long bounds = partition(arr, rand.nextInt(hi - lo) + lo, lo, hi);
+            int lt = (int) (bounds >>> 32);
+            int gt = (int) bounds;
+            if (stats != null) {
+                stats.addPartition(Math.min(lt - lo, hi - gt), hi - lo);
+                stats.addMoves((lt - lo) + (hi - gt));
+                stats.reachDepth(Sorting.introDepth(stats.getLength())
+                        - depth);
+            }
+            if (lt - lo < hi - gt) {
+                quickSort(arr, rand, lo, lt, depth, stats);
+                lo = gt;
+            } else {
+                quickSort(arr, rand, gt, hi, depth, stats);
+                hi = lt;
+            }
+        }
+        long moves = insertionSort(arr, lo, hi);
+        if (stats != null) {
+            stats.addMoves(moves);
+        }
+    }
+
+    /**
+     * Three-way partition of arr[lo, hi) around the element at pivotIndex.
+     *
+     * @param arr the array
+     * @param pivotIndex index of the pivot, in [lo, hi)
+     * @param lo left bound, inclusive
+     * @param hi right bound, exclusive
+     * @return the start of the range equal to the pivot in the high half and
+     * its end in the low half
+     */
+    static long partition(double[] arr, int pivotIndex, int lo, int hi) {
+        double pivot = arr[pivotIndex];
+        int lt = lo;
+        int i = lo;
+        int gt = hi;
+        while (i < gt) {
+            double value = arr[i];
+            if (less(value, pivot)) {
+                arr[i++] = arr[lt];
+                arr[lt++] = value;
+            } else if (less(pivot, value)) {
+                arr[i] = arr[--gt];
+                arr[gt] = value;
+            } else {
+                i++;
+            }
+        }
+        return ((long) lt << 32) | gt;
+    }
+
+    /**
+     * Heap sort of arr[lo, hi) in ascending order.
+     *
+     * @param arr the array
+     * @param lo first index, inclusive
+     * @param hi last index, exclusive
+     */
+    static void heapSort(double[] arr, int lo, int hi) {
+        int n = hi - lo;
+        for (int i = (n >>> 1) - 1; i >= 0; i--) {
+            siftDown(arr, lo, i, n);
+        }
+        for (int end = n - 1; end > 0; end--) {
+            double tmp = arr[lo];
+            arr[lo] = arr[lo + end];
+            arr[lo + end] = tmp;
+            siftDown(arr, lo, 0, end);
+        }
+    }
+
+    /**
+     * Moves the element at index i of the max heap stored in
+     * arr[lo, lo + n) down until both children are no greater.
+     *
+     * @param arr the array
+     * @param lo index of the heap root
+     * @param i heap index to sift down
+     * @param n size of the heap
+     */
+    private static void siftDown(double[] arr, int lo, int i, int n) {
+        double item = arr[lo + i];
+        int child = 2 * i + 1;
+        while (child < n) {
+            if (child + 1 < n
+                    && less(arr[lo + child], arr[lo + child + 1])) {
+                child++;
+            }
+            if (!less(item, arr[lo + child])) {
+                break;
+            }
+            arr[lo + i] = arr[lo + child];
+            i = child;
+            child = 2 * i + 1;
+        }
+        arr[lo + i] = item;
+    }
+
+    /**
+     * Stable merge sort of [lo, hi) into dst in ascending order, using src
+     * as scratch. Both arrays must hold the same elements in [lo, hi) when
+     * called.
+     *
+     * @param src scratch copy of the range
+     * @param dst array that holds the sorted range afterwards
+     * @param lo first index, inclusive
+     * @param hi last index, exclusive
+     */
+    static void mergeSort(double[] src, double[] dst, int lo, int hi) {
+        if (hi - lo <= Sorting.INSERTION_THRESHOLD) {
+            insertionSort(dst, lo, hi);
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        mergeSort(dst, src, lo, mid);
+        mergeSort(dst, src, mid, hi);
+        if (!less(src[mid], src[mid - 1])) {
+            System.arraycopy(src, lo, dst, lo, hi - lo);
+            return;
+        }
+        int i = lo;
+        int j = mid;
+        int out = lo;
+        while (i < mid && j < hi) {
+            if (less(src[j], src[i])) {
+                dst[out++] = src[j++];
+            } else {
+                dst[out++] = src[i++];
+            }
+        }
+        if (i < mid) {
+            System.arraycopy(src, i, dst, out, mid - i);
+        } else if (j < hi) {
+            System.arraycopy(src, j, dst, out, hi - j);
+        }
+    }
+
+    /**
+     * Tells whether a comes before b in the order of
+     * {@link Double#compare(double, double)}, without a call through a
+     * comparator.
+     *
+     * @param a the first double
+     * @param b the second double
+     * @return true if a is less than b, if a is -0.0 and b is 0.0, or if
+     * only b is NaN
+     */
+    static boolean less(double a, double b) {
+        if (a < b) {
+            return true;
+        }
+        if (a == b) {
+            // only -0.0 and 0.0 compare equal with different bits
+            return Double.doubleToRawLongBits(a)
+                    < Double.doubleToRawLongBits(b);
+        }
+        return b != b && a == a;
+    }
+}
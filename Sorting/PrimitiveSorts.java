@@ -0,0 +1,630 @@
+import java.util.Random;
+
+/**
+ * The int[], long[] and double[] versions of insertion sort, quick sort and
+ * merge sort behind the primitive overloads in {@link Sorting} that take a
+ * comparator. The ascending order overloads use {@link NaturalSorts}.
+ *
+ * They are the same algorithms as the object versions, an introsort with
+ * three-way partitioning and a ping-pong merge sort with an insertion sort
+ * cutoff, written once per element type so that elements are never boxed
+ * and every comparison is a call on a primitive comparator. Arguments are
+ * validated by Sorting.
+ *
+ * @author Ziyu Zhang
+ * @version 1.0
+ */
+final class PrimitiveSorts {
+
+    /**
+     * Not instantiable.
+     */
+    private PrimitiveSorts() {
+    }
+
+    /**
+     * Insertion sort of arr[lo, hi).
+     *
+     * @param arr the array to be sorted
+     * @param lo first index, inclusive
+     * @param hi last index, exclusive
+     * @param comparator the comparator
+     * @return the number of elements shifted
+     */
+    static long insertionSort(int[] arr, int lo, int hi,
+                              IntComparator comparator) {
+        long moves = 0;
+        for (int i = lo; i < hi - 1; i++) {
+            int tmp = arr[i + 1];
+            int k = i;
+            while (k >= lo && comparator.compare(arr[k], tmp) > 0) {
+                arr[k + 1] = arr[k];
+                k--;
+            }
+            arr[k + 1] = tmp;
+            moves += i - k;
+        }
+        return moves;
+    }
+
+    /**
+     * Introsort of arr[lo, hi): partitions three ways around a random
+     * pivot, recurses on the smaller side and loops on the larger one.
+     *
+     * @param arr the array to be sorted
+     * @param comparator the comparator
+     * @param rand the randomizer
+     * @param lo left bound, inclusive
+     * @param hi right bound, exclusive
+     * @param depth partitioning levels left before falling back to heap sort
+     * @param stats where to record partitions and moves, or null
+     */
+    static void quickSort(int[] arr, IntComparator comparator,
+                          Random rand, int lo, int hi, int depth,
+                          SortStats stats) {
+        while (hi - lo > Sorting.INSERTION_THRESHOLD) {
+            if (depth-- == 0) {
+                heapSort(arr, lo, hi, comparator);
+                return;
+            }
+            long bounds = partition(arr, comparator,
+                    rand.nextInt(hi - lo) + lo, lo, hi);
+            int lt = (int) (bounds >>> 32);
+            int gt = (int) bounds;
+            if (stats != null) {
+                stats.addPartition(Math.min(lt - lo, hi - gt), hi - lo);
+                stats.addMoves((lt - lo) + (hi - gt));
+                stats.reachDepth(Sorting.introDepth(stats.getLength())
+                        - depth);
+            }
+            if (lt - lo < hi - gt) {
+                quickSort(arr, comparator, rand, lo, lt, depth, stats);
+                lo = gt;
+            } else {
+                quickSort(arr, comparator, rand, gt, hi, depth, stats);
+                hi = lt;
+            }
+        }
+        long moves = insertionSort(arr, lo, hi, comparator);
+        if (stats != null) {
+            stats.addMoves(moves);
+        }
+    }
+
+    /**
+     * Three-way partition of arr[lo, hi) around the element at pivotIndex.
+     *
+     * @param arr the array
+     * @param comparator the comparator
+     * @param pivotIndex index of the pivot, in [lo, hi)
+     * @param lo left bound, inclusive
+     * @param hi right bound, exclusive
+     * @return the start of the range equal to the pivot in the high half and
+     * its end in the low half
+     */
+    private static long partition(int[] arr, IntComparator comparator,
+                                  int pivotIndex, int lo, int hi) {
+        int pivot = arr[pivotIndex];
+        int lt = lo;
+        int i = lo;
+        int gt = hi;
+        while (i < gt) {
+            int cmp = comparator.compare(arr[i], pivot);
+            if (cmp < 0) {
+                swap(arr, lt++, i++);
+            } else if (cmp > 0) {
+                swap(arr, i, --gt);
+            } else {
+                i++;
+            }
+        }
+        return ((long) lt << 32) | gt;
+    }
+
+    /**
+     * Heap sort of arr[lo, hi), the fallback once introsort recursed too
+     * deep.
+     *
+     * @param arr the array
+     * @param lo first index, inclusive
+     * @param hi last index, exclusive
+     * @param comparator the comparator
+     */
+    private static void heapSort(int[] arr, int lo, int hi,
+                                 IntComparator comparator) {
+        int n = hi - lo;
+        for (int i = (n >>> 1) - 1; i >= 0; i--) {
+            siftDown(arr, lo, i, n, comparator);
+        }
+        for (int end = n - 1; end > 0; end--) {
+            swap(arr, lo, lo + end);
+            siftDown(arr, lo, 0, end, comparator);
+        }
+    }
+
+    /**
+     * Moves the element at index i of the max heap stored in
+     * arr[lo, lo + n) down until both children are no greater.
+     *
+     * @param arr the array
+     * @param lo index of the heap root
+     * @param i heap index to sift down
+     * @param n size of the heap
+     * @param comparator the comparator
+     */
+    private static void siftDown(int[] arr, int lo, int i, int n,
+                                 IntComparator comparator) {
+        int item = arr[lo + i];
+        int child = 2 * i + 1;
+        while (child < n) {
+            if (child + 1 < n && comparator.compare(arr[lo + child],
+                    arr[lo + child + 1]) < 0) {
+                child++;
+            }
+            if (comparator.compare(item, arr[lo + child]) >= 0) {
+                break;
+            }
+            arr[lo + i] = arr[lo + child];
+            i = child;
+            child = 2 * i + 1;
+        }
+        arr[lo + i] = item;
+    }
+
+    /**
+     * Swaps two elements of an array.
+     *
+     * @param arr the array
+     * @param i first index
+     * @param j second index
+     */
+    private static void swap(int[] arr, int i, int j) {
+        int tmp = arr[i];
+        arr[i] = arr[j];
+        arr[j] = tmp;
+    }
+
+    /**
+     * Stable merge sort of [lo, hi) into dst, using src as scratch. Both
+     * arrays must hold the same elements in [lo, hi) when called.
+     *
+     * @param src scratch copy of the range
+     * @param dst array that holds the sorted range afterwards
+     * @param lo first index, inclusive
+     * @param hi last index, exclusive
+     * @param comparator the comparator
+     */
+    static void mergeSort(int[] src, int[] dst, int lo, int hi,
+                          IntComparator comparator) {
+        if (hi - lo <= Sorting.INSERTION_THRESHOLD) {
+            insertionSort(dst, lo, hi, comparator);
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        mergeSort(dst, src, lo, mid, comparator);
+        mergeSort(dst, src, mid, hi, comparator);
+        if (comparator.compare(src[mid - 1], src[mid]) <= 0) {
+            System.arraycopy(src, lo, dst, lo, hi - lo);
+            return;
+        }
+        int i = lo;
+        int j = mid;
+        int out = lo;
+        while (i < mid && j < hi) {
+            if (comparator.compare(src[j], src[i]) < 0) {
+                dst[out++] = src[j++];
+            } else {
+                dst[out++] = src[i++];
+            }
+        }
+        if (i < mid) {
+            System.arraycopy(src, i, dst, out, mid - i);
+        } else if (j < hi) {
+            System.arraycopy(src, j, dst, out, hi - j);
+        }
+    }
+
+    /**
+     * Insertion sort of arr[lo, hi).
+     *
+     * @param arr the array to be sorted
+     * @param lo first index, inclusive
+     * @param hi last index, exclusive
+     * @param comparator the comparator
+     * @return the number of elements shifted
+     */
+    static long insertionSort(long[] arr, int lo, int hi,
+                              LongComparator comparator) {
+        long moves = 0;
+        for (int i = lo; i < hi - 1; i++) {
+            long tmp = arr[i + 1];
+            int k = i;
+            while (k >= lo && comparator.compare(arr[k], tmp) > 0) {
+                arr[k + 1] = arr[k];
+                k--;
+            }
+            arr[k + 1] = tmp;
+            moves += i - k;
+        }
+        return moves;
+    }
+
+    /**
+     * Introsort of arr[lo, hi): partitions three ways around a random
+     * pivot, recurses on the smaller side and loops on the larger one.
+     *
+     * @param arr the array to be sorted
+     * @param comparator the comparator
+     * @param rand the randomizer
+     * @param lo left bound, inclusive
+     * @param hi right bound, exclusive
+     * @param depth partitioning levels left before falling back to heap sort
+     * @param stats where to record partitions and moves, or null
+     */
+    static void quickSort(long[] arr, LongComparator comparator,
+                          Random rand, int lo, int hi, int depth,
+                          SortStats stats) {
+        while (hi - lo > Sorting.INSERTION_THRESHOLD) {
+            if (depth-- == 0) {
+                heapSort(arr, lo, hi, comparator);
+                return;
+            }
+            long bounds = partition(arr, comparator,
+                    rand.nextInt(hi - lo) + lo, lo, hi);
+            int lt = (int) (bounds >>> 32);
+            int gt = (int) bounds;
+            if (stats != null) {
+                stats.addPartition(Math.min(lt - lo, hi - gt), hi - lo);
+                stats.addMoves((lt - lo) + (hi - gt));
+                stats.reachDepth(Sorting.introDepth(stats.getLength())
+                        - depth);
+            }
+            if (lt - lo < hi - gt) {
+                quickSort(arr, comparator, rand, lo, lt, depth, stats);
+                lo = gt;
+            } else {
+                quickSort(arr, comparator, rand, gt, hi, depth, stats);
+                hi = lt;
+            }
+        }
+        long moves = insertionSort(arr, lo, hi, comparator);
+        if (stats != null) {
+            stats.addMoves(moves);
+        }
+    }
+
+    /**
+     * Three-way partition of arr[lo, hi) around the element at pivotIndex.
+     *
+     * @param arr the array
+     * @param comparator the comparator
+     * @param pivotIndex index of the pivot, in [lo, hi)
+     * @param lo left bound, inclusive
+     * @param hi right bound, exclusive
+     * @return the start of the range equal to the pivot in the high half and
+     * its end in the low half
+     */
+    private static long partition(long[] arr, LongComparator comparator,
+                                  int pivotIndex, int lo, int hi) {
+        long pivot = arr[pivotIndex];
+        int lt = lo;
+        int i = lo;
+        int gt = hi;
+        while (i < gt) {
+            int cmp = comparator.compare(arr[i], pivot);
+            if (cmp < 0) {
+                swap(arr, lt++, i++);
+            } else if (cmp > 0) {
+                swap(arr, i, --gt);
+            } else {
+                i++;
+            }
+        }
+        return ((long) lt << 32) | gt;
+    }
+
+    /**
+     * Heap sort of arr[lo, hi), the fallback once introsort recursed too
+     * deep.
+     *
+     * @param arr the array
+     * @param lo first index, inclusive
+     * @param hi last index, exclusive
+     * @param comparator the comparator
+     */
+    private static void heapSort(long[] arr, int lo, int hi,
+                                 LongComparator comparator) {
+        int n = hi - lo;
+        for (int i = (n >>> 1) - 1; i >= 0; i--) {
+            siftDown(arr, lo, i, n, comparator);
+        }
+        for (int end = n - 1; end > 0; end--) {
+            swap(arr, lo, lo + end);
+            siftDown(arr, lo, 0, end, comparator);
+        }
+    }
+
+    /**
+     * Moves the element at index i of the max heap stored in
+     * arr[lo, lo + n) down until both children are no greater.
+     *
+     * @param arr the array
+     * @param lo index of the heap root
+     * @param i heap index to sift down
+     * @param n size of the heap
+     * @param comparator the comparator
+     */
+    private static void siftDown(long[] arr, int lo, int i, int n,
+                                 LongComparator comparator) {
+        long item = arr[lo + i];
+        int child = 2 * i + 1;
+        while (child < n) {
+            if (child + 1 < n && comparator.compare(arr[lo + child],
+                    arr[lo + child + 1]) < 0) {
+                child++;
+            }
+            if (comparator.compare(item, arr[lo + child]) >= 0) {
+                break;
+            }
+            arr[lo + i] = arr[lo + child];
+            i = child;
+            child = 2 * i + 1;
+        }
+        arr[lo + i] = item;
+    }
+
+    /**
+     * Swaps two elements of an array.
+     *
+     * @param arr the array
+     * @param i first index
+     * @param j second index
+     */
+    private static void swap(long[] arr, int i, int j) {
+        long tmp = arr[i];
+        arr[i] = arr[j];
+        arr[j] = tmp;
+    }
+
+    /**
+     * Stable merge sort of [lo, hi) into dst, using src as scratch. Both
+     * arrays must hold the same elements in [lo, hi) when called.
+     *
+     * @param src scratch copy of the range
+     * @param dst array that holds the sorted range afterwards
+     * @param lo first index, inclusive
+     * @param hi last index, exclusive
+     * @param comparator the comparator
+     */
+    static void mergeSort(long[] src, long[] dst, int lo, int hi,
+                          LongComparator comparator) {
+        if (hi - lo <= Sorting.INSERTION_THRESHOLD) {
+            insertionSort(dst, lo, hi, comparator);
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        mergeSort(dst, src, lo, mid, comparator);
+        mergeSort(dst, src, mid, hi, comparator);
+        if (comparator.compare(src[mid - 1], src[mid]) <= 0) {
+            System.arraycopy(src, lo, dst, lo, hi - lo);
+            return;
+        }
+        int i = lo;
+        int j = mid;
+        int out = lo;
+        while (i < mid && j < hi) {
+            if (comparator.compare(src[j], src[i]) < 0) {
+                dst[out++] = src[j++];
+            } else {
+                dst[out++] = src[i++];
+            }
+        }
+        if (i < mid) {
+            System.arraycopy(src, i, dst, out, mid - i);
+        } else if (j < hi) {
+            System.arraycopy(src, j, dst, out, hi - j);
+        }
+    }
+
+    /**
+     * Insertion sort of arr[lo, hi).
+     *
+     * @param arr the array to be sorted
+     * @param lo first index, inclusive
+     * @param hi last index, exclusive
+     * @param comparator the comparator
+     * @return the number of elements shifted
+     */
+    static long insertionSort(double[] arr, int lo, int hi,
+                              DoubleComparator comparator) {
+        long moves = 0;
+        for (int i = lo; i < hi - 1; i++) {
+            double tmp = arr[i + 1];
+            int k = i;
+            while (k >= lo && comparator.compare(arr[k], tmp) > 0) {
+                arr[k + 1] = arr[k];
+                k--;
+            }
+            arr[k + 1] = tmp;
+            moves += i - k;
+        }
+        return moves;
+    }
+
+    /**
+     * Introsort of arr[lo, hi): partitions three ways around a random
+     * pivot, recurses on the smaller side and loops on the larger one.
+     *
+     * @param arr the array to be sorted
+     * @param comparator the comparator
+     * @param rand the randomizer
+     * @param lo left bound, inclusive
+     * @param hi right bound, exclusive
+     * @param depth partitioning levels left before falling back to heap sort
+     * @param stats where to record partitions and moves, or null
+     */
+    static void quickSort(double[] arr, DoubleComparator comparator,
+                          Random rand, int lo, int hi, int depth,
+                          SortStats stats) {
+        while (hi - lo > Sorting.INSERTION_THRESHOLD) {
+            if (depth-- == 0) {
+                heapSort(arr, lo, hi, comparator);
+                return;
+            }
+            long bounds = partition(arr, comparator,
+                    rand.nextInt(hi - lo) + lo, lo, hi);
+            int lt = (int) (bounds >>> 32);
+            int gt = (int) bounds;
+            if (stats != null) {
+                stats.addPartition(Math.min(lt - lo, hi - gt), hi - lo);
+                stats.addMoves((lt - lo) + (hi - gt));
+                stats.reachDepth(Sorting.introDepth(stats.getLength())
+                        - depth);
+            }
+            if (lt - lo < hi - gt) {
+                quickSort(arr, comparator, rand, lo, lt, depth, stats);
+                lo = gt;
+            } else {
+                quickSort(arr, comparator, rand, gt, hi, depth, stats);
+                hi = lt;
+            }
+        }
+        long moves = insertionSort(arr, lo, hi, comparator);
+        if (stats != null) {
+            stats.addMoves(moves);
+        }
+    }
+
+    /**
+     * Three-way partition of arr[lo, hi) around the element at pivotIndex.
+     *
+     * @param arr the array
+     * @param comparator the comparator
+     * @param pivotIndex index of the pivot, in [lo, hi)
+     * @param lo left bound, inclusive
+     * @param hi right bound, exclusive
+     * @return the start of the range equal to the pivot in the high half and
+     * its end in the low half
+     */
+    private static long partition(double[] arr, DoubleComparator comparator,
+                                  int pivotIndex, int lo, int hi) {
+        double pivot = arr[pivotIndex];
+        int lt = lo;
+        int i = lo;
+        int gt = hi;
+        while (i < gt) {
+            int cmp = comparator.compare(arr[i], pivot);
+            if (cmp < 0) {
+                swap(arr, lt++, i++);
+            } else if (cmp > 0) {
+                swap(arr, i, --gt);
+            } else {
+                i++;
+            }
+        }
+        return ((long) lt << 32) | gt;
+    }
+
+    /**
+     * Heap sort of arr[lo, hi), the fallback once introsort recursed too
+     * deep.
+     *
+     * @param arr the array
+     * @param lo first index, inclusive
+     * @param hi last index, exclusive
+     * @param comparator the comparator
+     */
+    private static void heapSort(double[] arr, int lo, int hi,
+                                 DoubleComparator comparator) {
+        int n = hi - lo;
+        for (int i = (n >>> 1) - 1; i >= 0; i--) {
+            siftDown(arr, lo, i, n, comparator);
+        }
+        for (int end = n - 1; end > 0; end--) {
+            swap(arr, lo, lo + end);
+            siftDown(arr, lo, 0, end, comparator);
+        }
+    }
+
+    /**
+     * Moves the element at index i of the max heap stored in
+     * arr[lo, lo + n) down until both children are no greater.
+     *
+     * @param arr the array
+     * @param lo index of the heap root
+     * @param i heap index to sift down
+     * @param n size of the heap
+     * @param comparator the comparator
+     */
+    private static void siftDown(double[] arr, int lo, int i, int n,
+                                 DoubleComparator comparator) {
+        double item = arr[lo + i];
+        int child = 2 * i + 1;
+        while (child < n) {
+            if (child + 1 < n && comparator.compare(arr[lo + child],
+                    arr[lo + child + 1]) < 0) {
+                child++;
+            }
+            if (comparator.compare(item, arr[lo + child]) >= 0) {
+                break;
+            }
+            arr[lo + i] = arr[lo + child];
+            i = child;
+            child = 2 * i + 1;
+        }
+        arr[lo + i] = item;
+    }
+
+    /**
+     * Swaps two elements of an array.
+     *
+     * @param arr the array
+     * @param i first index
+     * @param j second index
+     */
+    private static void swap(double[] arr, int i, int j) {
+        double tmp = arr[i];
+        arr[i] = arr[j];
+        arr[j] = tmp;
+    }
+
+    /**
+     * Stable merge sort of [lo, hi) into dst, using src as scratch. Both
+     * arrays must hold the same elements in [lo, hi) when called.
+     *
+     * @param src scratch copy of the range
+     * @param dst array that holds the sorted range afterwards
+     * @param lo first index, inclusive
+     * @param hi last index, exclusive
+     * @param comparator the comparator
+     */
+    static void mergeSort(double[] src, double[] dst, int lo, int hi,
+                          DoubleComparator comparator) {
+        if (hi - lo <= Sorting.INSERTION_THRESHOLD) {
+            insertionSort(dst, lo, hi, comparator);
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        mergeSort(dst, src, lo, mid, comparator);
+        mergeSort(dst, src, mid, hi, comparator);
+        if (comparator.compare(src[mid - 1], src[mid]) <= 0) {
+            System.arraycopy(src, lo, dst, lo, hi - lo);
+            return;
+        }
+        int i = lo;
+        int j = mid;
+        int out = lo;
+        while (i < mid && j < hi) {
+            if (comparator.compare(src[j], src[i]) < 0) {
+                dst[out++] = src[j++];
+            } else {
+                dst[out++] = src[i++];
+            }
+        }
+        if (i < mid) {
+            System.arraycopy(src, i, dst, out, mid - i);
+        } else if (j < hi) {
+            System.arraycopy(src, j, dst, out, hi - j);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Extracts the sort key of a fixed-width record held in a buffer, for
+ * {@link Sorting#sortRecordsByKey(ByteBuffer, int, RecordKey)}.
+ *
+ * Implementations should read the record with the absolute get methods,
+ * for example {@code (buf, at) -> buf.getLong(at + 8)}, and must not change
+ * the buffer.
+ *
+ * @author Ziyu Zhang
+ * @version 1.0
+ */
+public interface RecordKey {
+
+    /**
+     * Extracts the key of one record.
+     *
+     * @param records the buffer holding the records
+     * @param offset absolute offset of the first byte of the record
+     * @return the key, records are sorted in ascending signed order of it
+     */
+    long key(ByteBuffer records, int offset);
+}
@@ -0,0 +1,308 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * The record sorts behind {@link Sorting#radixSortRecords(ByteBuffer, int,
+ * int, int)}, {@link Sorting#quickSortRecords(ByteBuffer, int, int, int,
+ * java.util.Random)} and {@link Sorting#sortRecordsByKey(ByteBuffer, int,
+ * RecordKey)}.
+ *
+ * Records are fixed-width slices of a buffer, addressed by their absolute
+ * byte offset, and are only ever rearranged by swapping them in place
+ * through the absolute get and put methods, so their bytes never leave the
+ * buffer. Keys are compared as unsigned bytes, first byte first, which is
+ * the order of {@link ByteBuffer#compareTo(ByteBuffer)} on the key slices
+ * with the bytes read as unsigned. Arguments are validated by Sorting.
+ *
+ * @author Ziyu Zhang
+ * @version 1.0
+ */
+final class RecordSorts {
+
+    /**
+     * Range size at or below which the radix sort switches to insertion
+     * sort.
+     */
+    private static final int RECORD_INSERTION_THRESHOLD = 16;
+
+    /**
+     * Number of values a byte digit can take.
+     */
+    private static final int BYTE_RADIX = 256;
+
+    /**
+     * Not instantiable.
+     */
+    private RecordSorts() {
+    }
+
+    /**
+     * In-place MSD radix sort (American flag sort) on the key bytes.
+     *
+     * Every range is counted on one key byte and its records are then
+     * swapped straight into their buckets, so no scratch space for records
+     * is needed. Ranges are kept on an explicit stack like in
+     * {@link StringSorts}, and a range whose records all share the next byte
+     * moves on to the byte after it without swapping anything.
+     *
+     * @param buf the buffer holding the records
+     * @param base offset of the first record
+     * @param n number of records
+     * @param width record width in bytes
+     * @param keyOffset offset of the key within a record
+     * @param keyLength key length in bytes
+     * @param stats where to record passes and moves, or null
+     */
+    static void radixSort(ByteBuffer buf, int base, int n, int width,
+                          int keyOffset, int keyLength, SortStats stats) {
+        if (keyLength == 0) {
+            // every record has the same, empty key
+            return;
+        }
+        int[] count = new int[BYTE_RADIX];
+        int[] next = new int[BYTE_RADIX];
+        // pending ranges as lo, hi, digit triples
+        int[] stack = new int[3 * 16];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = n;
+        stack[top++] = 0;
+        while (top > 0) {
+            int d = stack[--top];
+            int hi = stack[--top];
+            int lo = stack[--top];
+            if (hi - lo <= RECORD_INSERTION_THRESHOLD) {
+                long moves = insertionSort(buf, base, lo, hi, width,
+                        keyOffset, d, keyLength);
+                if (stats != null) {
+                    stats.addMoves(moves);
+                }
+                continue;
+            }
+            int key = base + keyOffset + d;
+            Arrays.fill(count, 0);
+            for (int i = lo; i < hi; i++) {
+                count[buf.get(key + i * width) & 0xFF]++;
+            }
+            if (stats != null) {
+                stats.addPass();
+                stats.reachDepth(d + 1);
+            }
+            int first = buf.get(key + lo * width) & 0xFF;
+            if (count[first] == hi - lo) {
+                // every key has the same byte here
+                if (d + 1 < keyLength) {
+                    stack = grow(stack, top);
+                    top = push(stack, top, lo, hi, d + 1);
+                }
+                continue;
+            }
+            // next[r] is the first unplaced slot of bucket r, count[r] its end
+            int start = lo;
+            for (int r = 0; r < BYTE_RADIX; r++) {
+                next[r] = start;
+                start += count[r];
+                count[r] = start;
+            }
+            long swaps = 0;
+            for (int r = 0; r < BYTE_RADIX; r++) {
+                while (next[r] < count[r]) {
+                    int i = next[r];
+                    int b = buf.get(key + i * width) & 0xFF;
+                    if (b == r) {
+                        next[r]++;
+                    } else {
+                        swap(buf, base + i * width,
+                                base + next[b]++ * width, width);
+                        swaps++;
+                    }
+                }
+            }
+            if (stats != null) {
+                stats.addMoves(2 * swaps);
+            }
+            if (d + 1 < keyLength) {
+                // next[r] is now the end of bucket r
+                int bucketStart = lo;
+                for (int r = 0; r < BYTE_RADIX; r++) {
+                    if (next[r] - bucketStart > 1) {
+                        stack = grow(stack, top);
+                        top = push(stack, top, bucketStart, next[r], d + 1);
+                    }
+                    bucketStart = next[r];
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the first eight key bytes of a record as an unsigned big-endian
+     * long, padded with zero bytes if the key is shorter. Comparing two
+     * prefixes with {@link Long#compareUnsigned(long, long)} orders them
+     * like their key bytes.
+     *
+     * @param buf the buffer holding the record
+     * @param key offset of the key
+     * @param keyLength key length in bytes
+     * @return the key prefix
+     */
+    static long prefix(ByteBuffer buf, int key, int keyLength) {
+        int m = Math.min(Long.BYTES, keyLength);
+        long prefix = 0;
+        for (int k = 0; k < m; k++) {
+            prefix = (prefix << Byte.SIZE) | (buf.get(key + k) & 0xFF);
+        }
+        return m == Long.BYTES ? prefix
+                : prefix << (Byte.SIZE * (Long.BYTES - m));
+    }
+
+    /**
+     * Compares two keys as unsigned bytes, starting at byte from.
+     *
+     * @param buf the buffer holding the records
+     * @param a offset of the first key
+     * @param b offset of the second key
+     * @param from number of leading key bytes known to be equal
+     * @param keyLength key length in bytes
+     * @return a negative number, zero or a positive number as the first key
+     * is less than, equal to or greater than the second
+     */
+    static int compareKeys(ByteBuffer buf, int a, int b, int from,
+                           int keyLength) {
+        int k = from;
+        boolean little = buf.order() == ByteOrder.LITTLE_ENDIAN;
+        for (; k + Long.BYTES <= keyLength; k += Long.BYTES) {
+            long x = buf.getLong(a + k);
+            long y = buf.getLong(b + k);
+            if (x != y) {
+                return little
+                        ? Long.compareUnsigned(Long.reverseBytes(x),
+                                Long.reverseBytes(y))
+                        : Long.compareUnsigned(x, y);
+            }
+        }
+        for (; k < keyLength; k++) {
+            int x = buf.get(a + k) & 0xFF;
+            int y = buf.get(b + k) & 0xFF;
+            if (x != y) {
+                return x - y;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Rearranges the records so that record i becomes the old record
+     * perm[i], following the cycles of the permutation with swaps.
+     *
+     * @param buf the buffer holding the records
+     * @param base offset of the first record
+     * @param width record width in bytes
+     * @param perm a permutation of the record indices, left as the identity
+     * @return the number of swaps
+     */
+    static long permute(ByteBuffer buf, int base, int width, int[] perm) {
+        long swaps = 0;
+        for (int i = 0; i < perm.length; i++) {
+            int cur = i;
+            while (perm[cur] != cur) {
+                int next = perm[cur];
+                perm[cur] = cur;
+                if (next == i) {
+                    break;
+                }
+                swap(buf, base + cur * width, base + next * width, width);
+                swaps++;
+                cur = next;
+            }
+        }
+        return swaps;
+    }
+
+    /**
+     * Insertion sort of records [lo, hi), whose keys all share their first
+     * from bytes, by adjacent swaps.
+     *
+     * @param buf the buffer holding the records
+     * @param base offset of the first record
+     * @param lo first record, inclusive
+     * @param hi last record, exclusive
+     * @param width record width in bytes
+     * @param keyOffset offset of the key within a record
+     * @param from number of leading key bytes known to be equal
+     * @param keyLength key length in bytes
+     * @return the number of records moved
+     */
+    private static long insertionSort(ByteBuffer buf, int base, int lo,
+                                      int hi, int width, int keyOffset,
+                                      int from, int keyLength) {
+        long moves = 0;
+        for (int i = lo + 1; i < hi; i++) {
+            int k = i;
+            while (k > lo) {
+                int a = base + (k - 1) * width;
+                int b = a + width;
+                if (compareKeys(buf, a + keyOffset, b + keyOffset, from,
+                        keyLength) <= 0) {
+                    break;
+                }
+                swap(buf, a, b, width);
+                moves += 2;
+                k--;
+            }
+        }
+        return moves;
+    }
+
+    /**
+     * Swaps two records, eight bytes at a time where possible.
+     *
+     * @param buf the buffer holding the records
+     * @param a offset of the first record
+     * @param b offset of the second record
+     * @param width record width in bytes
+     */
+    private static void swap(ByteBuffer buf, int a, int b, int width) {
+        int k = 0;
+        for (; k + Long.BYTES <= width; k += Long.BYTES) {
+            long tmp = buf.getLong(a + k);
+            buf.putLong(a + k, buf.getLong(b + k));
+            buf.putLong(b + k, tmp);
+        }
+        for (; k < width; k++) {
+            byte tmp = buf.get(a + k);
+            buf.put(a + k, buf.get(b + k));
+            buf.put(b + k, tmp);
+        }
+    }
+
+    /**
+     * Pushes a range onto the stack of radixSort.
+     *
+     * @param stack the stack, with room for one more range
+     * @param top the current size of the stack
+     * @param lo first record, inclusive
+     * @param hi last record, exclusive
+     * @param d key byte to sort the range on
+     * @return the new size of the stack
+     */
+    private static int push(int[] stack, int top, int lo, int hi, int d) {
+        stack[top++] = lo;
+        stack[top++] = hi;
+        stack[top++] = d;
+        return top;
+    }
+
+    /**
+     * Makes sure the stack has room for one more range.
+     *
+     * @param stack the stack
+     * @param top the current size of the stack
+     * @return the stack, or a larger copy of it
+     */
+    private static int[] grow(int[] stack, int top) {
+        return top + 3 <= stack.length ? stack
+                : Arrays.copyOf(stack, stack.length * 2);
+    }
+}
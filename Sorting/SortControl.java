@@ -0,0 +1,89 @@
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lets a caller stop a cancellable sort in {@link Sorting} early and
+ * follow its progress.
+ *
+ * A sort checks its control at every partition or merge boundary and stops
+ * as soon as {@link #cancel()} was called or the deadline has passed,
+ * leaving the array a permutation of its input that is sorted only in
+ * parts. One control may be shared by several sorts, for example all the
+ * sorts of one request, and cancelling it stops all of them.
+ *
+ * @author Ziyu Zhang
+ * @version 1.0
+ */
+public final class SortControl {
+
+    private final long deadline;
+    private final boolean timed;
+    private final SortProgress progress;
+    private volatile boolean cancelled;
+
+    /**
+     * Creates a control without a deadline, which only stops a sort when it
+     * is cancelled.
+     *
+     * @throws IllegalArgumentException if progress is null
+     * @param progress where to report progress, {@link SortProgress#NONE}
+     * to ignore it
+     */
+    public SortControl(SortProgress progress) {
+        if (progress == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        this.deadline = 0;
+        this.timed = false;
+        this.progress = progress;
+    }
+
+    /**
+     * Creates a control that also stops a sort once timeout has passed from
+     * now.
+     *
+     * @throws IllegalArgumentException if unit or progress is null
+     * @param timeout the time budget
+     * @param unit the unit of timeout
+     * @param progress where to report progress, {@link SortProgress#NONE}
+     * to ignore it
+     */
+    public SortControl(long timeout, TimeUnit unit, SortProgress progress) {
+        if (unit == null || progress == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        this.deadline = System.nanoTime() + unit.toNanos(timeout);
+        this.timed = true;
+        this.progress = progress;
+    }
+
+    /**
+     * Asks every sort using this control to stop at its next check. Safe to
+     * call from any thread.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Tells whether sorts using this control should stop, either because it
+     * was cancelled or because its deadline has passed.
+     *
+     * @return true if sorts should stop
+     */
+    public boolean isCancelled() {
+        if (!cancelled && timed && System.nanoTime() - deadline >= 0) {
+            cancelled = true;
+        }
+        return cancelled;
+    }
+
+    /**
+     * Passes a progress report on to the callback.
+     *
+     * @param done units of work done so far
+     * @param total units of work in the whole sort
+     */
+    void report(long done, long total) {
+        progress.progress(done, total);
+    }
+}
@@ -0,0 +1,151 @@
+/**
+ * Which algorithm {@link Sorting#sort(Object[], java.util.Comparator)}
+ * picked for an array, what it saw in the sample that led to the choice and
+ * how long sampling and sorting took.
+ *
+ * @author Ziyu Zhang
+ * @version 1.0
+ */
+public final class SortDecision {
+
+    /**
+     * The algorithms the dispatching sort can choose from.
+     */
+    public enum Strategy {
+        /**
+         * Insertion sort, for tiny and nearly sorted arrays.
+         */
+        INSERTION_SORT,
+        /**
+         * TimSort, for arrays made of long ascending or descending runs and
+         * as the general fallback.
+         */
+        TIM_SORT,
+        /**
+         * Three-way quick sort, for arrays with many duplicates.
+         */
+        QUICK_SORT,
+        /**
+         * Parallel merge sort, for large arrays.
+         */
+        PARALLEL_MERGE_SORT
+    }
+
+    private final Strategy strategy;
+    private final int length;
+    private final int sampleSize;
+    private final long estimatedRuns;
+    private final double inversionRatio;
+    private final double duplicateRatio;
+    private final long sampleNanos;
+    private final long sortNanos;
+
+    /**
+     * Records a decision.
+     *
+     * @param strategy the algorithm that was run
+     * @param length number of elements sorted
+     * @param sampleSize number of elements sampled, 0 if the array was too
+     * small to sample
+     * @param estimatedRuns estimated number of ascending or descending runs
+     * @param inversionRatio share of sampled pairs that were out of order
+     * @param duplicateRatio share of sampled elements equal to another one
+     * @param sampleNanos time spent sampling
+     * @param sortNanos time spent sorting after the decision
+     */
+    SortDecision(Strategy strategy, int length, int sampleSize,
+                 long estimatedRuns, double inversionRatio,
+                 double duplicateRatio, long sampleNanos, long sortNanos) {
+        this.strategy = strategy;
+        this.length = length;
+        this.sampleSize = sampleSize;
+        this.estimatedRuns = estimatedRuns;
+        this.inversionRatio = inversionRatio;
+        this.duplicateRatio = duplicateRatio;
+        this.sampleNanos = sampleNanos;
+        this.sortNanos = sortNanos;
+    }
+
+    /**
+     * Gets the algorithm that was run.
+     *
+     * @return the strategy
+     */
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Gets the number of elements sorted.
+     *
+     * @return the array length
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Gets the number of elements sampled.
+     *
+     * @return the sample size, 0 if the array was not sampled
+     */
+    public int getSampleSize() {
+        return sampleSize;
+    }
+
+    /**
+     * Gets the number of runs the array was estimated to consist of.
+     *
+     * @return the estimated number of runs
+     */
+    public long getEstimatedRuns() {
+        return estimatedRuns;
+    }
+
+    /**
+     * Gets the share of sampled pairs that were out of order: 0 for sorted
+     * input, about 0.5 for random input and 1 for reversed input.
+     *
+     * @return the inversion ratio
+     */
+    public double getInversionRatio() {
+        return inversionRatio;
+    }
+
+    /**
+     * Gets the share of sampled elements that were equal to another sampled
+     * element.
+     *
+     * @return the duplicate ratio
+     */
+    public double getDuplicateRatio() {
+        return duplicateRatio;
+    }
+
+    /**
+     * Gets the time spent sampling and deciding.
+     *
+     * @return the sampling time in nanoseconds
+     */
+    public long getSampleNanos() {
+        return sampleNanos;
+    }
+
+    /**
+     * Gets the time spent sorting after the decision was made.
+     *
+     * @return the sorting time in nanoseconds
+     */
+    public long getSortNanos() {
+        return sortNanos;
+    }
+
+    @Override
+    public String toString() {
+        return strategy + "[n=" + length + ", sampleSize=" + sampleSize
+                + ", estimatedRuns=" + estimatedRuns + ", inversionRatio="
+                + inversionRatio + ", duplicateRatio=" + duplicateRatio
+                + ", sampleNanos=" + sampleNanos + ", sortNanos=" + sortNanos
+                + "]";
+    }
+}
@@ -0,0 +1,138 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * A {@link SortListener} that emits every sort as a JDK Flight Recorder
+ * event named {@code Sorting.Sort}, and every choice made by
+ * {@link Sorting#sort(Object[], java.util.Comparator)} as one named
+ * {@code Sorting.Dispatch}. Events are only built while a recording has
+ * them enabled.
+ *
+ * @author Ziyu Zhang
+ * @version 1.0
+ */
+public class SortEventListener implements SortListener {
+
+    @Override
+    public void sortFinished(SortStats stats) {
+        SortEvent event = new SortEvent();
+        if (!event.isEnabled()) {
+            return;
+        }
+        event.algorithm = stats.getAlgorithm();
+        event.length = stats.getLength();
+        event.comparisons = stats.getComparisons();
+        event.moves = stats.getMoves();
+        event.scratchBytes = stats.getScratchBytes();
+        event.maxDepth = stats.getMaxDepth();
+        event.passes = stats.getPasses();
+        event.pivotQuality = stats.getPivotQuality();
+        event.elapsed = stats.getElapsedNanos();
+        event.keyExtraction = stats.getKeyNanos();
+        event.comparator = stats.getComparatorNanos();
+        event.commit();
+    }
+
+    @Override
+    public void sortDispatched(SortDecision decision) {
+        DispatchEvent event = new DispatchEvent();
+        if (!event.isEnabled()) {
+            return;
+        }
+        event.strategy = decision.getStrategy().name();
+        event.length = decision.getLength();
+        event.sampleSize = decision.getSampleSize();
+        event.estimatedRuns = decision.getEstimatedRuns();
+        event.inversionRatio = decision.getInversionRatio();
+        event.duplicateRatio = decision.getDuplicateRatio();
+        event.sampling = decision.getSampleNanos();
+        event.sorting = decision.getSortNanos();
+        event.commit();
+    }
+
+    /**
+     * The flight recorder event for one sort.
+     */
+    @Name("Sorting.Sort")
+    @Label("Sort")
+    @Category("Sorting")
+    @Description("A call into Sorting")
+    static class SortEvent extends Event {
+        @Label("Algorithm")
+        String algorithm;
+
+        @Label("Length")
+        int length;
+
+        @Label("Comparisons")
+        long comparisons;
+
+        @Label("Moves")
+        long moves;
+
+        @Label("Scratch")
+        @DataAmount
+        long scratchBytes;
+
+        @Label("Max Depth")
+        int maxDepth;
+
+        @Label("Passes")
+        int passes;
+
+        @Label("Pivot Quality")
+        double pivotQuality;
+
+        @Label("Elapsed")
+        @Timespan
+        long elapsed;
+
+        @Label("Key Extraction")
+        @Timespan
+        long keyExtraction;
+
+        @Label("Comparator")
+        @Timespan
+        long comparator;
+    }
+
+    /**
+     * The flight recorder event for one decision of the dispatching sort.
+     */
+    @Name("Sorting.Dispatch")
+    @Label("Sort Dispatch")
+    @Category("Sorting")
+    @Description("An algorithm chosen by Sorting.sort")
+    static class DispatchEvent extends Event {
+        @Label("Strategy")
+        String strategy;
+
+        @Label("Length")
+        int length;
+
+        @Label("Sample Size")
+        int sampleSize;
+
+        @Label("Estimated Runs")
+        long estimatedRuns;
+
+        @Label("Inversion Ratio")
+        double inversionRatio;
+
+        @Label("Duplicate Ratio")
+        double duplicateRatio;
+
+        @Label("Sampling")
+        @Timespan
+        long sampling;
+
+        @Label("Sorting")
+        @Timespan
+        long sorting;
+    }
+}
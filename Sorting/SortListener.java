@@ -0,0 +1,38 @@
+/**
+ * Receives the statistics of every sort run through {@link Sorting}.
+ *
+ * Install one with {@link Sorting#setSortListener(SortListener)}. While
+ * {@link #NONE} is installed, which is the default, the sorts do not
+ * collect anything: each one reads the listener once, sees NONE and runs
+ * its uninstrumented path.
+ *
+ * Listeners are called on the thread that started the sort, after it
+ * finished, and must be thread-safe if sorts run concurrently.
+ *
+ * @author Ziyu Zhang
+ * @version 1.0
+ */
+public interface SortListener {
+
+    /**
+     * The listener that ignores everything and disables collection.
+     */
+    SortListener NONE = stats -> { };
+
+    /**
+     * Called once for every finished sort.
+     *
+     * @param stats what the sort did
+     */
+    void sortFinished(SortStats stats);
+
+    /**
+     * Called once for every call to
+     * {@link Sorting#sort(Object[], java.util.Comparator)}, after the
+     * algorithm it picked has finished.
+     *
+     * @param decision which algorithm was picked and why
+     */
+    default void sortDispatched(SortDecision decision) {
+    }
+}
@@ -0,0 +1,25 @@
+/**
+ * Receives progress reports from the cancellable sorts in {@link Sorting}.
+ *
+ * Reports are made on the sorting thread, between partitions or merges,
+ * and should return quickly since the sort waits for them.
+ *
+ * @author Ziyu Zhang
+ * @version 1.0
+ */
+public interface SortProgress {
+
+    /**
+     * The callback that ignores every report.
+     */
+    SortProgress NONE = (done, total) -> { };
+
+    /**
+     * Called whenever the sort got further.
+     *
+     * @param done units of work done so far: elements placed in their final
+     * position for quick sort, passes completed for merge sort
+     * @param total units of work in the whole sort
+     */
+    void progress(long done, long total);
+}
@@ -0,0 +1,300 @@
+import java.util.Comparator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * What a single call into {@link Sorting} did, as reported to a
+ * {@link SortListener}.
+ *
+ * Counters that an algorithm has no notion of stay at zero; for example
+ * only cocktail shaker sort and the radix sorts report passes and only
+ * quickSort reports pivot quality. The primitive sorts that take no
+ * comparator compare with operators and so report no comparisons. The
+ * parallel sorts report comparisons and allocations but not the moves made
+ * by their worker tasks. Scratch bytes count the arrays a sort allocated,
+ * with object references counted as REFERENCE_BYTES each. Only
+ * sortByCachedKey splits its time into key extraction and comparator time.
+ *
+ * @author Ziyu Zhang
+ * @version 1.0
+ */
+public final class SortStats {
+
+    /**
+     * Assumed size of an object reference, as with compressed oops.
+     */
+    static final int REFERENCE_BYTES = 4;
+
+    private final String algorithm;
+    private final int length;
+    private final long startNanos;
+    private final LongAdder comparisons = new LongAdder();
+    private long moves;
+    private long scratchBytes;
+    private int maxDepth;
+    private int passes;
+    private int partitions;
+    private double pivotBalance;
+    private long elapsedNanos;
+    private long keyNanos;
+    private long comparatorNanos;
+
+    /**
+     * Starts collecting for one sort.
+     *
+     * @param algorithm name of the sorting method
+     * @param length number of elements being sorted
+     */
+    SortStats(String algorithm, int length) {
+        this.algorithm = algorithm;
+        this.length = length;
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Wraps a comparator so that every call is counted. The count is safe
+     * to update from the worker threads of the parallel sorts.
+     *
+     * @param <T> data type compared
+     * @param comparator the comparator to count
+     * @return the counting comparator
+     */
+    <T> Comparator<T> counting(Comparator<T> comparator) {
+        return (a, b) -> {
+            comparisons.increment();
+            return comparator.compare(a, b);
+        };
+    }
+
+    /**
+     * Wraps an IntComparator so that every call is counted.
+     *
+     * @param comparator the comparator to count
+     * @return the counting comparator
+     */
+    IntComparator countingInt(IntComparator comparator) {
+        return (a, b) -> {
+            comparisons.increment();
+            return comparator.compare(a, b);
+        };
+    }
+
+    /**
+     * Wraps a LongComparator so that every call is counted.
+     *
+     * @param comparator the comparator to count
+     * @return the counting comparator
+     */
+    LongComparator countingLong(LongComparator comparator) {
+        return (a, b) -> {
+            comparisons.increment();
+            return comparator.compare(a, b);
+        };
+    }
+
+    /**
+     * Wraps a DoubleComparator so that every call is counted.
+     *
+     * @param comparator the comparator to count
+     * @return the counting comparator
+     */
+    DoubleComparator countingDouble(DoubleComparator comparator) {
+        return (a, b) -> {
+            comparisons.increment();
+            return comparator.compare(a, b);
+        };
+    }
+
+    /**
+     * Records element moves or swaps.
+     *
+     * @param count the number of moves
+     */
+    void addMoves(long count) {
+        moves += count;
+    }
+
+    /**
+     * Records scratch memory allocated by the sort.
+     *
+     * @param bytes the number of bytes
+     */
+    void addScratch(long bytes) {
+        scratchBytes += bytes;
+    }
+
+    /**
+     * Records that the sort reached a recursion depth.
+     *
+     * @param depth the depth, the top level being 1
+     */
+    void reachDepth(int depth) {
+        maxDepth = Math.max(maxDepth, depth);
+    }
+
+    /**
+     * Records a completed pass over the data.
+     */
+    void addPass() {
+        passes++;
+    }
+
+    /**
+     * Records how evenly a partition split its range.
+     *
+     * @param smaller size of the smaller side
+     * @param size size of the partitioned range
+     */
+    void addPartition(int smaller, int size) {
+        partitions++;
+        pivotBalance += (double) smaller / size;
+    }
+
+    /**
+     * Records time spent extracting sort keys.
+     *
+     * @param nanos the time in nanoseconds
+     */
+    void addKeyNanos(long nanos) {
+        keyNanos += nanos;
+    }
+
+    /**
+     * Records time spent in the phase of a sort that calls the comparator.
+     *
+     * @param nanos the time in nanoseconds
+     */
+    void addComparatorNanos(long nanos) {
+        comparatorNanos += nanos;
+    }
+
+    /**
+     * Stops the clock.
+     */
+    void finish() {
+        elapsedNanos = System.nanoTime() - startNanos;
+    }
+
+    /**
+     * Gets the name of the sorting method.
+     *
+     * @return the algorithm name
+     */
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * Gets the number of elements sorted.
+     *
+     * @return the array length
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Gets the number of comparator calls.
+     *
+     * @return the number of comparisons
+     */
+    public long getComparisons() {
+        return comparisons.sum();
+    }
+
+    /**
+     * Gets the number of element moves or swaps.
+     *
+     * @return the number of moves
+     */
+    public long getMoves() {
+        return moves;
+    }
+
+    /**
+     * Gets the scratch memory allocated.
+     *
+     * @return the number of bytes
+     */
+    public long getScratchBytes() {
+        return scratchBytes;
+    }
+
+    /**
+     * Gets the deepest recursion reached. For timSort this is the highest
+     * the run stack grew.
+     *
+     * @return the maximum depth
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Gets the number of passes over the data.
+     *
+     * @return the number of passes
+     */
+    public int getPasses() {
+        return passes;
+    }
+
+    /**
+     * Gets the number of partitions made.
+     *
+     * @return the number of partitions
+     */
+    public int getPartitions() {
+        return partitions;
+    }
+
+    /**
+     * Gets the average share of a partitioned range that ended up on its
+     * smaller side: 0.5 means every pivot was a perfect median, values near
+     * 0 mean the pivots were close to the extremes.
+     *
+     * @return the pivot quality, or 0 if nothing was partitioned
+     */
+    public double getPivotQuality() {
+        return partitions == 0 ? 0 : pivotBalance / partitions;
+    }
+
+    /**
+     * Gets the wall clock time the sort took.
+     *
+     * @return the elapsed time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Gets the time spent extracting sort keys.
+     *
+     * @return the key extraction time in nanoseconds, 0 if the sort does
+     * not time it separately
+     */
+    public long getKeyNanos() {
+        return keyNanos;
+    }
+
+    /**
+     * Gets the time spent sorting by comparator once the keys were
+     * extracted, which is spent almost entirely comparing.
+     *
+     * @return the comparator time in nanoseconds, 0 if the sort does not
+     * time it separately
+     */
+    public long getComparatorNanos() {
+        return comparatorNanos;
+    }
+
+    @Override
+    public String toString() {
+        return algorithm + "[n=" + length + ", comparisons="
+                + getComparisons() + ", moves=" + moves + ", scratchBytes="
+                + scratchBytes + ", maxDepth=" + maxDepth + ", passes="
+                + passes + ", pivotQuality=" + getPivotQuality()
+                + ", elapsedNanos=" + elapsedNanos + ", keyNanos=" + keyNanos
+                + ", comparatorNanos=" + comparatorNanos + "]";
+    }
+}
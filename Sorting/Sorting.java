@@ -1,8 +1,23 @@
-import java.util.Queue;
-import java.util.Stack;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Random;
-import java.util.LinkedList;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Your implementation of various sorting algorithms.
@@ -12,6 +27,314 @@ import java.util.LinkedList;
  */
 public class Sorting {
 
+    /**
+     * Number of key bits sorted per radix pass.
+     */
+    private static final int RADIX_BITS = 8;
+    private static final int RADIX = 1 << RADIX_BITS;
+    private static final int RADIX_MASK = RADIX - 1;
+
+    /**
+     * Default range size below which the parallel sorts stop forking.
+     */
+    private static final int PARALLEL_THRESHOLD = 1 << 13;
+
+    /**
+     * Range size at or below which the divide and conquer sorts switch to
+     * insertion sort.
+     */
+    static final int INSERTION_THRESHOLD = 16;
+
+    /**
+     * Range size at or below which the radix sorts and the ascending order
+     * int and long sorts switch to a sorting network.
+     */
+    static final int NETWORK_THRESHOLD = 32;
+
+    /**
+     * Number of positions sampled by sort before it picks an algorithm.
+     */
+    private static final int SAMPLE_SIZE = 64;
+
+    /**
+     * Estimated average run length at or above which sort uses TimSort.
+     */
+    private static final int MIN_RUN_LENGTH = 32;
+
+    /**
+     * Sampled duplicate ratio at or above which sort uses three-way quick
+     * sort.
+     */
+    private static final double DUPLICATE_RATIO = 0.5;
+
+    /**
+     * Seed of the pivots sort picks when it falls back to quick sort and no
+     * Random was passed in, so that its runs are reproducible.
+     */
+    private static final long DISPATCH_SEED = 0x5EED_50A7L;
+
+    /**
+     * Receives the statistics of every sort, see {@link SortListener}.
+     */
+    private static volatile SortListener listener = SortListener.NONE;
+
+    /**
+     * Installs the listener that every sort reports to. Pass
+     * {@link SortListener#NONE} to turn collection off again.
+     *
+     * @throws IllegalArgumentException if listener is null
+     * @param listener the listener
+     */
+    public static void setSortListener(SortListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        Sorting.listener = listener;
+    }
+
+    /**
+     * Starts collecting statistics for a sort if a listener is installed.
+     *
+     * @param algorithm name of the sorting method
+     * @param length number of elements being sorted
+     * @return the stats to fill in, or null if collection is off
+     */
+    private static SortStats startStats(String algorithm, int length) {
+        return listener == SortListener.NONE ? null
+                : new SortStats(algorithm, length);
+    }
+
+    /**
+     * Wraps comparator so that it is counted in stats.
+     *
+     * @param <T> data type compared
+     * @param comparator the comparator
+     * @param stats the stats, or null if collection is off
+     * @return the comparator to sort with
+     */
+    private static <T> Comparator<T> counted(Comparator<T> comparator,
+                                             SortStats stats) {
+        return stats == null ? comparator : stats.counting(comparator);
+    }
+
+    /**
+     * Wraps an IntComparator so that it is counted in stats.
+     *
+     * @param comparator the comparator
+     * @param stats the stats, or null if collection is off
+     * @return the comparator to sort with
+     */
+    private static IntComparator countedInt(IntComparator comparator,
+                                            SortStats stats) {
+        return stats == null ? comparator : stats.countingInt(comparator);
+    }
+
+    /**
+     * Wraps a LongComparator so that it is counted in stats.
+     *
+     * @param comparator the comparator
+     * @param stats the stats, or null if collection is off
+     * @return the comparator to sort with
+     */
+    private static LongComparator countedLong(LongComparator comparator,
+                                              SortStats stats) {
+        return stats == null ? comparator : stats.countingLong(comparator);
+    }
+
+    /**
+     * Wraps a DoubleComparator so that it is counted in stats.
+     *
+     * @param comparator the comparator
+     * @param stats the stats, or null if collection is off
+     * @return the comparator to sort with
+     */
+    private static DoubleComparator countedDouble(DoubleComparator comparator,
+                                                  SortStats stats) {
+        return stats == null ? comparator : stats.countingDouble(comparator);
+    }
+
+    /**
+     * Reports a finished sort to the listener.
+     *
+     * @param stats the stats, or null if collection is off
+     */
+    private static void finishStats(SortStats stats) {
+        if (stats != null) {
+            stats.finish();
+            listener.sortFinished(stats);
+        }
+    }
+
+    /**
+     * Sorts arr with whichever algorithm suits it best.
+     *
+     * Arrays of at most INSERTION_THRESHOLD elements are insertion sorted.
+     * Larger arrays are sampled at SAMPLE_SIZE evenly spaced positions: every
+     * sampled element is compared with its right neighbour to estimate the
+     * number of ascending or descending runs, and the sampled elements are
+     * insertion sorted among themselves to count their inversions and
+     * duplicates. Then, in order of preference:
+     *  - if nothing in the sample was out of order, insertion sort is tried
+     *    with a budget of n moves, and the rest of the rules apply to the
+     *    partially sorted array if it runs out
+     *  - if the runs are estimated to average MIN_RUN_LENGTH or more, the
+     *    array is merged with TimSort
+     *  - if at least half of the sample are duplicates, three-way quick sort
+     *    is used
+     *  - large arrays are sorted with parallel merge sort when the common
+     *    ForkJoinPool has more than one thread
+     *  - everything else is sorted with TimSort
+     *
+     * The decision is returned and also passed to
+     * {@link SortListener#sortDispatched(SortDecision)}; the algorithm it
+     * chose reports its own statistics as usual.
+     *
+     * It should be:
+     *  in-place (except for the scratch space of the merge sorts)
+     *
+     * Have a worst case running time of:
+     *  O(n log n)
+     *
+     * And a best case running time of:
+     *  O(n)
+     *
+     * The sort is not stable: duplicate heavy input is quick sorted. Use
+     * {@link #timSort(Object[], Comparator)} when the order of equal
+     * elements matters.
+     *
+     * Quick sort pivots are drawn from a Random with a fixed seed, so
+     * sorting the same input twice does the same work. Use
+     * {@link #sort(Object[], Comparator, Random)} to pick the pivots
+     * yourself.
+     *
+     * @throws IllegalArgumentException if the array or comparator is null
+     * @param <T> data type to sort
+     * @param arr the array that must be sorted after the method runs
+     * @param comparator the Comparator used to compare the data in arr
+     * @return which algorithm was used and why
+     */
+    public static <T> SortDecision sort(T[] arr, Comparator<T> comparator) {
+        return sort(arr, comparator, new Random(DISPATCH_SEED));
+    }
+
+    /**
+     * Sorts arr with whichever algorithm suits it best, drawing the pivots
+     * from rand if it picks quick sort, see
+     * {@link #sort(Object[], Comparator)}.
+     *
+     * @throws IllegalArgumentException if the array or comparator or rand is
+     * null
+     * @param <T> data type to sort
+     * @param arr the array that must be sorted after the method runs
+     * @param comparator the Comparator used to compare the data in arr
+     * @param rand the Random object used to select pivots
+     * @return which algorithm was used and why
+     */
+    public static <T> SortDecision sort(T[] arr, Comparator<T> comparator,
+                                        Random rand) {
+        if (arr == null || comparator == null || rand == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        long start = System.nanoTime();
+        int length = arr.length;
+        if (length <= INSERTION_THRESHOLD) {
+            insertionSort(arr, comparator);
+            return reportDecision(new SortDecision(
+                    SortDecision.Strategy.INSERTION_SORT, length, 0, 0, 0, 0,
+                    0, System.nanoTime() - start));
+        }
+        int size = Math.min(SAMPLE_SIZE, length - 1);
+        T[] sample = (T[]) new Object[size];
+        int descents = 0;
+        for (int i = 0; i < size; i++) {
+            int at = (int) ((long) i * (length - 1) / size);
+            if (comparator.compare(arr[at], arr[at + 1]) > 0) {
+                descents++;
+            }
+            sample[i] = arr[at];
+        }
+        long inversions = insertionSort(sample, 0, size, comparator);
+        int duplicates = 0;
+        for (int i = 1; i < size; i++) {
+            if (comparator.compare(sample[i - 1], sample[i]) == 0) {
+                duplicates++;
+            }
+        }
+        // descending runs are reversed by TimSort, so they count as runs too
+        long runs = 1 + (long) ((length - 1)
+                * ((double) Math.min(descents, size - descents) / size));
+        double inversionRatio = inversions / (size * (size - 1) / 2.0);
+        double duplicateRatio = (double) duplicates / size;
+        long sampled = System.nanoTime();
+
+        SortDecision.Strategy strategy;
+        if (descents == 0 && inversions == 0
+                && partialInsertionSort(arr, comparator, length)) {
+            strategy = SortDecision.Strategy.INSERTION_SORT;
+        } else if (runs * MIN_RUN_LENGTH <= length) {
+            strategy = SortDecision.Strategy.TIM_SORT;
+            timSort(arr, comparator);
+        } else if (duplicateRatio >= DUPLICATE_RATIO) {
+            strategy = SortDecision.Strategy.QUICK_SORT;
+            quickSort(arr, comparator, rand);
+        } else if (length >= PARALLEL_THRESHOLD
+                && ForkJoinPool.getCommonPoolParallelism() > 1) {
+            strategy = SortDecision.Strategy.PARALLEL_MERGE_SORT;
+            parallelMergeSort(arr, comparator);
+        } else {
+            strategy = SortDecision.Strategy.TIM_SORT;
+            timSort(arr, comparator);
+        }
+        return reportDecision(new SortDecision(strategy, length, size, runs,
+                inversionRatio, duplicateRatio, sampled - start,
+                System.nanoTime() - sampled));
+    }
+
+    /**
+     * Passes a decision of sort to the listener.
+     *
+     * @param decision the decision
+     * @return the decision
+     */
+    private static SortDecision reportDecision(SortDecision decision) {
+        SortListener current = listener;
+        if (current != SortListener.NONE) {
+            current.sortDispatched(decision);
+        }
+        return decision;
+    }
+
+    /**
+     * Insertion sort that gives up once it has shifted more than maxMoves
+     * elements. The array is left a partially sorted permutation of itself
+     * either way.
+     *
+     * @param <T> data type to sort
+     * @param arr the array to be sorted
+     * @param comparator the comparator
+     * @param maxMoves number of shifts allowed
+     * @return true if arr is sorted, false if the budget ran out
+     */
+    private static <T> boolean partialInsertionSort(T[] arr,
+                                                    Comparator<T> comparator,
+                                                    long maxMoves) {
+        long moves = 0;
+        for (int i = 0; i < arr.length - 1; i++) {
+            if (moves > maxMoves) {
+                return false;
+            }
+            T tmp = arr[i + 1];
+            int k = i;
+            while (k >= 0 && comparator.compare(arr[k], tmp) > 0) {
+                arr[k + 1] = arr[k];
+                k--;
+            }
+            arr[k + 1] = tmp;
+            moves += i - k;
+        }
+        return true;
+    }
+
     /**
      * Implement cocktail shaker sort.
      *
@@ -42,6 +365,9 @@ public class Sorting {
         if (arr == null || comparator == null) {
             throw new IllegalArgumentException("parameter null!");
         }
+        SortStats stats = startStats("cocktailShakerSort", arr.length);
+        comparator = counted(comparator, stats);
+        long swaps = 0;
         int length = arr.length;
         int i = 1;
         while (i <= length - 1) {
@@ -50,6 +376,7 @@ public class Sorting {
                     T tmp = arr[j];
                     arr[j] = arr[j + 1];
                     arr[j + 1] = tmp;
+                    swaps++;
                 }
             }
             for (int k = length - i - 1; k >= i; k--) {
@@ -57,10 +384,19 @@ public class Sorting {
                     T tmp = arr[k];
                     arr[k] = arr[k - 1];
                     arr[k - 1] = tmp;
+                    swaps++;
                 }
             }
+            if (stats != null) {
+                stats.addPass();
+                stats.addPass();
+            }
             i++;
         }
+        if (stats != null) {
+            stats.addMoves(swaps);
+        }
+        finishStats(stats);
     }
 
     /**
@@ -90,14 +426,39 @@ public class Sorting {
         if (arr == null || comparator == null) {
             throw new IllegalArgumentException("parameter null!");
         }
-        for (int i = 0; i < arr.length - 1; i++) {
+        SortStats stats = startStats("insertionSort", arr.length);
+        long moves = insertionSort(arr, 0, arr.length,
+                counted(comparator, stats));
+        if (stats != null) {
+            stats.addMoves(moves);
+        }
+        finishStats(stats);
+    }
+
+    /**
+     * Insertion sort of arr[lo, hi), used as the base case of other sorts.
+     *
+     * @param <T> data type to sort
+     * @param arr the array to be sorted
+     * @param lo first index, inclusive
+     * @param hi last index, exclusive
+     * @param comparator the comparator
+     * @return the number of elements shifted
+     */
+    private static <T> long insertionSort(T[] arr, int lo, int hi,
+                                          Comparator<T> comparator) {
+        long moves = 0;
+        for (int i = lo; i < hi - 1; i++) {
             T tmp = arr[i + 1];
-            for (int k = i; k >= 0
-                    && comparator.compare(arr[k], tmp) > 0; k--) {
+            int k = i;
+            while (k >= lo && comparator.compare(arr[k], tmp) > 0) {
                 arr[k + 1] = arr[k];
-                arr[k] = tmp;
+                k--;
             }
+            arr[k + 1] = tmp;
+            moves += i - k;
         }
+        return moves;
     }
 
     /**
@@ -123,6 +484,8 @@ public class Sorting {
         if (arr == null || comparator == null) {
             throw new IllegalArgumentException("parameter null!");
         }
+        SortStats stats = startStats("selectionSort", arr.length);
+        comparator = counted(comparator, stats);
         for (int head = 0; head < arr.length - 1; head++) {
             T min = arr[head];
             int minIndex = head;
@@ -136,6 +499,10 @@ public class Sorting {
             arr[head] = min;
             arr[minIndex] = tmp;
         }
+        if (stats != null) {
+            stats.addMoves(Math.max(arr.length - 1, 0));
+        }
+        finishStats(stats);
     }
 
     /**
@@ -147,14 +514,21 @@ public class Sorting {
      *
      * int pivotIndex = r.nextInt(b - a) + a;
      *
+     * This is an introsort: every partition is three-way, so runs of
+     * elements equal to the pivot are finished in a single pass. Only the
+     * smaller side is recursed on, which bounds the stack at O(log n), and
+     * once the partitioning depth exceeds 2 log n the remaining range is
+     * heap sorted. Ranges of at most INSERTION_THRESHOLD elements are
+     * finished with insertion sort.
+     *
      * It should be:
      *  in-place
      *
      * Have a worst case running time of:
-     *  O(n^2)
+     *  O(n log n)
      *
      * And a best case running time of:
-     *  O(n log n)
+     *  O(n)
      *
      * Note that there may be duplicates in the array.
      *
@@ -170,214 +544,4361 @@ public class Sorting {
         if (arr == null || comparator == null || rand == null) {
             throw new IllegalArgumentException("parameter null!");
         }
-        quickSortHelper(arr, comparator, rand, 0, arr.length - 1);
+        SortStats stats = startStats("quickSort", arr.length);
+        quickSortHelper(arr, counted(comparator, stats), rand, 0, arr.length,
+                introDepth(arr.length), stats);
+        finishStats(stats);
     }
 
     /**
-     *This is the helperMethod for quicksort, it enables recursion
+     * Quick sort that can be stopped early, see
+     * {@link #quickSort(Object[], Comparator, Random)}.
+     *
+     * The control is checked before every partition and before every range
+     * that is finished with insertion sort. After every partition and every
+     * finished range the number of elements known to be in their final
+     * position is reported to the control's progress callback. When the
+     * control is cancelled or its deadline passes the sort returns at once;
+     * since it only ever swaps elements, arr then still holds exactly the
+     * elements it was given.
      *
+     * It should be:
+     *  in-place
+     *
+     * Have a worst case running time of:
+     *  O(n log n)
+     *
+     * @throws IllegalArgumentException if the array, comparator, rand or
+     * control is null
      * @param <T> data type to sort
-     * @param arr the array to be quicksorted
-     * @param comparator the comparator
-     * @param rand the randomizer
-     * @param l left bound
-     * @param r right bound
+     * @param arr the array to be sorted
+     * @param comparator the Comparator used to compare the data in arr
+     * @param rand the Random object used to select pivots
+     * @param control how to cancel the sort and where to report progress
+     * @return true if arr was sorted, false if the sort was stopped early
      */
-    private static <T> void quickSortHelper(T[] arr, Comparator<T> comparator,
-                                            Random rand, int l, int r) {
-        // both l and r inclusive
-        if (l >= r) {
-            return;
-        }
-        int left = l;
-        int right = r;
-        int pivot = rand.nextInt(right + 1 - left) + left;
-        while (left < right) {
-            while (left != pivot
-                    && comparator.compare(arr[left], arr[pivot]) < 0) {
-                left++;
-            }
-            while (right != pivot
-                    && comparator.compare(arr[right], arr[pivot]) > 0) {
-                right--;
-            }
-            if (left < right) {
-                T tmp = arr[left];
-                arr[left] = arr[right];
-                arr[right] = tmp;
-                if (left == pivot) {
-                    pivot = right;
-                } else if (right == pivot) {
-                    pivot = left;
-                }
-            }
+    public static <T> boolean quickSort(T[] arr, Comparator<T> comparator,
+                                        Random rand, SortControl control) {
+        if (arr == null || comparator == null || rand == null
+                || control == null) {
+            throw new IllegalArgumentException("parameter null!");
         }
-        quickSortHelper(arr, comparator, rand, l, pivot - 1);
-        quickSortHelper(arr, comparator, rand, pivot + 1, r);
+        SortStats stats = startStats("quickSort", arr.length);
+        boolean sorted = cancellableQuickSort(arr, counted(comparator, stats),
+                rand, 0, arr.length, introDepth(arr.length),
+                new ControlledRun(control, arr.length), stats);
+        finishStats(stats);
+        return sorted;
     }
 
     /**
-     * Implement merge sort.
+     * Parallel quick sort using the common ForkJoinPool and the default
+     * granularity, see
+     * {@link #parallelQuickSort(Object[], Comparator, Random, int)}.
+     *
+     * @throws IllegalArgumentException if the array or comparator or rand is
+     * null
+     * @param <T> data type to sort
+     * @param arr the array that must be sorted after the method runs
+     * @param comparator the Comparator used to compare the data in arr
+     * @param rand the Random object used to select pivots
+     */
+    public static <T> void parallelQuickSort(T[] arr, Comparator<T> comparator,
+                                             Random rand) {
+        parallelQuickSort(arr, comparator, rand, PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * Parallel quick sort.
+     *
+     * Ranges larger than threshold are partitioned the same way as quickSort
+     * and both sides are sorted as separate ForkJoin tasks; smaller ranges
+     * are sorted sequentially by quickSort. Pivots still come from rand: the
+     * top level task uses it directly and every forked task draws pivots
+     * from its own Random seeded by its parent, so the result and the
+     * sequence of pivots depend only on the seed of rand and not on thread
+     * scheduling.
      *
      * It should be:
-     *  stable
+     *  in-place
      *
      * Have a worst case running time of:
      *  O(n log n)
      *
-     * And a best case running time of:
-     *  O(n log n)
-     *
-     * You can create more arrays to run mergesort, but at the end,
-     * everything should be merged back into the original T[]
-     * which was passed in.
-     *
-     * ********************* IMPORTANT ************************
-     * FAILURE TO DO SO MAY CAUSE ClassCastException AND CAUSE
-     * YOUR METHOD TO FAIL ALL THE TESTS FOR MERGE SORT
-     * ********************************************************
-     *
-     * Any duplicates in the array should be in the same relative position after
-     * sorting as they were before sorting.
-     *
-     * @throws IllegalArgumentException if the array or comparator is null
+     * @throws IllegalArgumentException if the array or comparator or rand is
+     * null, or if threshold is less than 1
      * @param <T> data type to sort
-     * @param arr the array to be sorted
+     * @param arr the array that must be sorted after the method runs
      * @param comparator the Comparator used to compare the data in arr
+     * @param rand the Random object used to select pivots
+     * @param threshold size at or below which a range is sorted sequentially
      */
-    public static <T> void mergeSort(T[] arr, Comparator<T> comparator) {
-        if (arr == null || comparator == null) {
-            throw new IllegalArgumentException("parameters null!");
-        }
-        int length = arr.length;
-        if (length < 2) {
-            return;
-        }
-        int mid = length / 2;
-        T[] arr1 = (T[]) new Object[mid];
-        T[] arr2 = (T[]) new Object[length - mid];
-        for (int i = 0; i < mid; i++) {
-            arr1[i] = arr[i];
+    public static <T> void parallelQuickSort(T[] arr, Comparator<T> comparator,
+                                             Random rand, int threshold) {
+        if (arr == null || comparator == null || rand == null) {
+            throw new IllegalArgumentException("parameter null!");
         }
-        int k = 0;
-        for (int j = mid; j < length; j++) {
-            arr2[k++] = arr[j];
+        if (threshold < 1) {
+            throw new IllegalArgumentException("threshold must be positive!");
         }
-        mergeSort(arr1, comparator);
-        mergeSort(arr2, comparator);
-        merging(arr1, arr2, arr, comparator);
+        SortStats stats = startStats("parallelQuickSort", arr.length);
+        ForkJoinPool.commonPool().invoke(new QuickSortTask<>(arr,
+                counted(comparator, stats), rand, 0, arr.length,
+                introDepth(arr.length), threshold));
+        finishStats(stats);
     }
 
     /**
-    * Helper method to merge the two sub-lists;
-    * @param <T> the data type to be sorted
-    * @param arr1 first array
-    * @param arr2 second array
-    * @param orig the original array
-    * @param comparator the comparator
+     * This is the helper method for quicksort. It partitions the range,
+     * recurses on the smaller side and loops on the larger one.
+     *
+     * @param <T> data type to sort
+     * @param arr the array to be quicksorted
+     * @param comparator the comparator
+     * @param rand the randomizer
+     * @param lo left bound, inclusive
+     * @param hi right bound, exclusive
+     * @param depth partitioning levels left before falling back to heap sort
+     * @param stats where to record partitions and moves, or null
      */
-    private static <T> void merging(T[] arr1, T[] arr2, T[] orig,
-                                   Comparator<T> comparator) {
-        int i = 0;
-        int j = 0;
-        while (i + j < orig.length) {
-            if (j == arr2.length || (i < arr1.length
-                    && comparator.compare(arr1[i], arr2[j]) < 0)) {
-                orig[i + j] = arr1[i++];
+    private static <T> void quickSortHelper(T[] arr, Comparator<T> comparator,
+                                            Random rand, int lo, int hi,
+                                            int depth, SortStats stats) {
+        while (hi - lo > INSERTION_THRESHOLD) {
+            if (depth-- == 0) {
+                heapSort(arr, lo, hi, comparator);
+                return;
+            }
+            long bounds = partition(arr, comparator,
+                    rand.nextInt(hi - lo) + lo, lo, hi);
+            int lt = lowerBound(bounds);
+            int gt = upperBound(bounds);
+            if (stats != null) {
+                stats.addPartition(Math.min(lt - lo, hi - gt), hi - lo);
+                stats.addMoves((lt - lo) + (hi - gt));
+                stats.reachDepth(introDepth(stats.getLength()) - depth);
+            }
+            if (lt - lo < hi - gt) {
+                quickSortHelper(arr, comparator, rand, lo, lt, depth, stats);
+                lo = gt;
             } else {
-                orig[i + j] = arr2[j++];
+                quickSortHelper(arr, comparator, rand, gt, hi, depth, stats);
+                hi = lt;
             }
         }
+        long moves = insertionSort(arr, lo, hi, comparator);
+        if (stats != null) {
+            stats.addMoves(moves);
+        }
     }
 
     /**
-     * Implement radix sort.
-     *
-     * Remember you CANNOT convert the ints to strings at any point in your
-     * code!
+     * This is the helper method for the cancellable quicksort. It works like
+     * quickSortHelper but stops as soon as run says so.
      *
-     * It should be:
-     *  stable
+     * @param <T> data type to sort
+     * @param arr the array to be quicksorted
+     * @param comparator the comparator
+     * @param rand the randomizer
+     * @param lo left bound, inclusive
+     * @param hi right bound, exclusive
+     * @param depth partitioning levels left before falling back to heap sort
+     * @param run the control and progress of this sort
+     * @param stats where to record partitions and moves, or null
+     * @return false if the sort was stopped
+     */
+    private static <T> boolean cancellableQuickSort(T[] arr,
+                                                    Comparator<T> comparator,
+                                                    Random rand, int lo,
+                                                    int hi, int depth,
+                                                    ControlledRun run,
+                                                    SortStats stats) {
+        while (hi - lo > INSERTION_THRESHOLD) {
+            if (run.isCancelled()) {
+                return false;
+            }
+            if (depth-- == 0) {
+                heapSort(arr, lo, hi, comparator);
+                run.advance(hi - lo);
+                return true;
+            }
+            long bounds = partition(arr, comparator,
+                    rand.nextInt(hi - lo) + lo, lo, hi);
+            int lt = lowerBound(bounds);
+            int gt = upperBound(bounds);
+            if (stats != null) {
+                stats.addPartition(Math.min(lt - lo, hi - gt), hi - lo);
+                stats.addMoves((lt - lo) + (hi - gt));
+                stats.reachDepth(introDepth(stats.getLength()) - depth);
+            }
+            // the elements equal to the pivot are in place
+            run.advance(gt - lt);
+            if (lt - lo < hi - gt) {
+                if (!cancellableQuickSort(arr, comparator, rand, lo, lt,
+                        depth, run, stats)) {
+                    return false;
+                }
+                lo = gt;
+            } else {
+                if (!cancellableQuickSort(arr, comparator, rand, gt, hi,
+                        depth, run, stats)) {
+                    return false;
+                }
+                hi = lt;
+            }
+        }
+        if (run.isCancelled()) {
+            return false;
+        }
+        long moves = insertionSort(arr, lo, hi, comparator);
+        if (stats != null) {
+            stats.addMoves(moves);
+        }
+        run.advance(hi - lo);
+        return true;
+    }
+
+    /**
+     * Three-way (Dutch national flag) partition of arr[lo, hi) around the
+     * element at pivotIndex. Afterwards arr[lo, lt) is less than the pivot,
+     * arr[lt, gt) is equal to it and arr[gt, hi) is greater.
+     *
+     * @param <T> data type to partition
+     * @param arr the array
+     * @param comparator the comparator
+     * @param pivotIndex index of the pivot, in [lo, hi)
+     * @param lo left bound, inclusive
+     * @param hi right bound, exclusive
+     * @return lt and gt packed into a long, read them back with
+     * {@link #lowerBound(long)} and {@link #upperBound(long)}
+     */
+    private static <T> long partition(T[] arr, Comparator<T> comparator,
+                                      int pivotIndex, int lo, int hi) {
+        T pivot = arr[pivotIndex];
+        int lt = lo;
+        int i = lo;
+        int gt = hi;
+        while (i < gt) {
+            int cmp = comparator.compare(arr[i], pivot);
+            if (cmp < 0) {
+                swap(arr, lt++, i++);
+            } else if (cmp > 0) {
+                swap(arr, i, --gt);
+            } else {
+                i++;
+            }
+        }
+        return ((long) lt << 32) | gt;
+    }
+
+    /**
+     * Start of the equal range returned by partition.
+     *
+     * @param bounds the packed bounds
+     * @return the first index equal to the pivot
+     */
+    private static int lowerBound(long bounds) {
+        return (int) (bounds >>> 32);
+    }
+
+    /**
+     * End of the equal range returned by partition.
+     *
+     * @param bounds the packed bounds
+     * @return the first index greater than the pivot
+     */
+    private static int upperBound(long bounds) {
+        return (int) bounds;
+    }
+
+    /**
+     * Depth limit for introsort on n elements, 2 * floor(log2 n).
+     *
+     * @param n the number of elements
+     * @return the depth limit
+     */
+    static int introDepth(int n) {
+        return n < 2 ? 0 : 2 * (31 - Integer.numberOfLeadingZeros(n));
+    }
+
+    /**
+     * Heap sort of arr[lo, hi), the fallback when quicksort recurses too
+     * deeply.
+     *
+     * @param <T> data type to sort
+     * @param arr the array
+     * @param lo left bound, inclusive
+     * @param hi right bound, exclusive
+     * @param comparator the comparator
+     */
+    private static <T> void heapSort(T[] arr, int lo, int hi,
+                                     Comparator<T> comparator) {
+        int n = hi - lo;
+        for (int i = (n >>> 1) - 1; i >= 0; i--) {
+            siftDown(arr, lo, i, n, comparator);
+        }
+        for (int end = n - 1; end > 0; end--) {
+            swap(arr, lo, lo + end);
+            siftDown(arr, lo, 0, end, comparator);
+        }
+    }
+
+    /**
+     * Moves the element at index i of the max heap stored in
+     * arr[lo, lo + n) down until both children are no greater.
+     *
+     * @param <T> data type in the heap
+     * @param arr the array
+     * @param lo index of the heap root
+     * @param i heap index to sift down
+     * @param n size of the heap
+     * @param comparator the comparator
+     */
+    private static <T> void siftDown(T[] arr, int lo, int i, int n,
+                                     Comparator<T> comparator) {
+        T item = arr[lo + i];
+        int child = 2 * i + 1;
+        while (child < n) {
+            if (child + 1 < n && comparator.compare(arr[lo + child],
+                    arr[lo + child + 1]) < 0) {
+                child++;
+            }
+            if (comparator.compare(item, arr[lo + child]) >= 0) {
+                break;
+            }
+            arr[lo + i] = arr[lo + child];
+            i = child;
+            child = 2 * i + 1;
+        }
+        arr[lo + i] = item;
+    }
+
+    /**
+     * Swaps two elements of an array.
+     *
+     * @param <T> data type in the array
+     * @param arr the array
+     * @param i first index
+     * @param j second index
+     */
+    private static <T> void swap(T[] arr, int i, int j) {
+        T tmp = arr[i];
+        arr[i] = arr[j];
+        arr[j] = tmp;
+    }
+
+    /**
+     * Selects the k-th smallest element (counting from 0).
+     *
+     * Afterwards arr[k] holds the element that would be there if arr were
+     * sorted, every element before it is no greater and every element after
+     * it is no smaller. This is an introselect: it partitions the same way
+     * as quickSort around a median of three pivot, and as soon as two
+     * partitions in a row fail to halve the range it switches to median of
+     * medians pivots for the rest of the selection. The median of three
+     * partitions before the switch then cost O(n) together, and every
+     * median of medians partition shrinks the range by at least 30%, which
+     * keeps the worst case linear.
+     *
+     * It should be:
+     *  in-place
+     *
+     * Have a worst case running time of:
+     *  O(n)
+     *
+     * @throws IllegalArgumentException if the array or comparator is null, or
+     * if k is not an index of arr
+     * @param <T> data type to select from
+     * @param arr the array to select from
+     * @param k the rank to select
+     * @param comparator the Comparator used to compare the data in arr
+     * @return the k-th smallest element
+     */
+    public static <T> T select(T[] arr, int k, Comparator<T> comparator) {
+        if (arr == null || comparator == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        if (k < 0 || k >= arr.length) {
+            throw new IllegalArgumentException("k out of range!");
+        }
+        SortStats stats = startStats("select", arr.length);
+        selectHelper(arr, counted(comparator, stats), 0, arr.length, k);
+        finishStats(stats);
+        return arr[k];
+    }
+
+    /**
+     * Partial sort: places the k smallest elements of arr, in sorted order,
+     * at the front of the array. The order of the rest is unspecified.
+     *
+     * It should be:
+     *  in-place
+     *
+     * Have a worst case running time of:
+     *  O(n + k log k)
+     *
+     * @throws IllegalArgumentException if the array or comparator is null, or
+     * if k is negative or greater than the length of arr
+     * @param <T> data type to sort
+     * @param arr the array to partially sort
+     * @param k the number of smallest elements to sort
+     * @param comparator the Comparator used to compare the data in arr
+     */
+    public static <T> void partialSort(T[] arr, int k,
+                                       Comparator<T> comparator) {
+        if (arr == null || comparator == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        if (k < 0 || k > arr.length) {
+            throw new IllegalArgumentException("k out of range!");
+        }
+        if (k == 0) {
+            return;
+        }
+        SortStats stats = startStats("partialSort", arr.length);
+        comparator = counted(comparator, stats);
+        selectHelper(arr, comparator, 0, arr.length, k - 1);
+        heapSort(arr, 0, k - 1, comparator);
+        finishStats(stats);
+    }
+
+    /**
+     * Incremental quick sort: returns an iterator over the elements of arr
+     * in sorted order that only sorts as much of arr as it has been asked
+     * for.
+     *
+     * Each call to next partitions the unsorted range in front of it until
+     * the smallest remaining element is in place, keeping the pivot
+     * positions on a stack, so later calls start from smaller and smaller
+     * ranges. Taking the first k elements costs O(n + k log k) expected
+     * time. arr is sorted in place as the iterator advances, and is fully
+     * sorted once it is exhausted. Pivots come from rand; if the ranges stop
+     * shrinking fast enough the current range is heap sorted instead, as in
+     * quickSort.
+     *
+     * arr must not be modified until the iterator is exhausted or
+     * abandoned. A SortListener is only told about the sort once the
+     * iterator is exhausted.
+     *
+     * Have a worst case running time of:
+     *  O(n log n) for the whole array
+     *
+     * @throws IllegalArgumentException if the array or comparator or rand is
+     * null
+     * @param <T> data type to sort
+     * @param arr the array to iterate over in sorted order
+     * @param comparator the Comparator used to compare the data in arr
+     * @param rand the Random object used to select pivots
+     * @return an iterator over arr in sorted order
+     */
+    public static <T> Iterator<T> sortedIterator(T[] arr,
+                                                 Comparator<T> comparator,
+                                                 Random rand) {
+        if (arr == null || comparator == null || rand == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        SortStats stats = startStats("sortedIterator", arr.length);
+        return new IncrementalQuickSort<>(arr, counted(comparator, stats),
+                rand, stats);
+    }
+
+    /**
+     * Sequential ordered stream over the elements of arr in sorted order,
+     * backed by {@link #sortedIterator(Object[], Comparator, Random)}, so
+     * that for example {@code sortedStream(arr, c, r).limit(k)} only sorts
+     * enough of arr to produce k elements.
+     *
+     * @throws IllegalArgumentException if the array or comparator or rand is
+     * null
+     * @param <T> data type to sort
+     * @param arr the array to stream in sorted order
+     * @param comparator the Comparator used to compare the data in arr
+     * @param rand the Random object used to select pivots
+     * @return a stream over arr in sorted order
+     */
+    public static <T> Stream<T> sortedStream(T[] arr, Comparator<T> comparator,
+                                             Random rand) {
+        return StreamSupport.stream(Spliterators.spliterator(
+                sortedIterator(arr, comparator, rand), arr.length,
+                Spliterator.ORDERED), false);
+    }
+
+    /**
+     * Introselect on arr[lo, hi).
+     *
+     * @param <T> data type to select from
+     * @param arr the array
+     * @param comparator the comparator
+     * @param lo left bound, inclusive
+     * @param hi right bound, exclusive
+     * @param k the index to put in its sorted place, in [lo, hi)
+     */
+    private static <T> void selectHelper(T[] arr, Comparator<T> comparator,
+                                         int lo, int hi, int k) {
+        boolean linear = false;
+        int checkpoint = hi - lo;
+        int partitions = 0;
+        while (hi - lo > INSERTION_THRESHOLD) {
+            int pivot = linear
+                    ? medianOfMedians(arr, comparator, lo, hi)
+                    : medianOfThree(arr, comparator, lo, (lo + hi) >>> 1,
+                    hi - 1);
+            long bounds = partition(arr, comparator, pivot, lo, hi);
+            if (k < lowerBound(bounds)) {
+                hi = lowerBound(bounds);
+            } else if (k >= upperBound(bounds)) {
+                lo = upperBound(bounds);
+            } else {
+                return;
+            }
+            if (!linear && ++partitions == 2) {
+                // every two partitions must at least halve the range
+                linear = hi - lo > checkpoint / 2;
+                checkpoint = hi - lo;
+                partitions = 0;
+            }
+        }
+        insertionSort(arr, lo, hi, comparator);
+    }
+
+    /**
+     * Finds the index of the median of three elements.
+     *
+     * @param <T> data type in the array
+     * @param arr the array
+     * @param comparator the comparator
+     * @param a first index
+     * @param b second index
+     * @param c third index
+     * @return whichever of a, b and c holds the median
+     */
+    private static <T> int medianOfThree(T[] arr, Comparator<T> comparator,
+                                         int a, int b, int c) {
+        if (comparator.compare(arr[a], arr[b]) < 0) {
+            if (comparator.compare(arr[b], arr[c]) < 0) {
+                return b;
+            }
+            return comparator.compare(arr[a], arr[c]) < 0 ? c : a;
+        }
+        if (comparator.compare(arr[a], arr[c]) < 0) {
+            return a;
+        }
+        return comparator.compare(arr[b], arr[c]) < 0 ? c : b;
+    }
+
+    /**
+     * Finds a pivot that is guaranteed to leave at least 30% of arr[lo, hi)
+     * on each side. The medians of groups of five are gathered at the front
+     * of the range and their own median is selected recursively.
+     *
+     * @param <T> data type in the array
+     * @param arr the array
+     * @param comparator the comparator
+     * @param lo left bound, inclusive
+     * @param hi right bound, exclusive
+     * @return the index of the pivot
+     */
+    private static <T> int medianOfMedians(T[] arr, Comparator<T> comparator,
+                                           int lo, int hi) {
+        int medians = lo;
+        for (int i = lo; i < hi; i += 5) {
+            int end = Math.min(i + 5, hi);
+            insertionSort(arr, i, end, comparator);
+            swap(arr, medians++, i + (end - i - 1) / 2);
+        }
+        int mid = lo + (medians - lo - 1) / 2;
+        selectHelper(arr, comparator, lo, medians, mid);
+        return mid;
+    }
+
+    /**
+     * Selects the k-th smallest int (counting from 0), see
+     * {@link #select(Object[], int, Comparator)}.
+     *
+     * Have a worst case running time of:
+     *  O(n)
+     *
+     * @throws IllegalArgumentException if the array is null, or if k is not
+     * an index of arr
+     * @param arr the array to select from
+     * @param k the rank to select
+     * @return the k-th smallest element
+     */
+    public static int select(int[] arr, int k) {
+        if (arr == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        if (k < 0 || k >= arr.length) {
+            throw new IllegalArgumentException("k out of range!");
+        }
+        SortStats stats = startStats("select", arr.length);
+        selectHelper(arr, 0, arr.length, k);
+        finishStats(stats);
+        return arr[k];
+    }
+
+    /**
+     * Places the k smallest ints of arr, in sorted order, at the front of
+     * the array, see {@link #partialSort(Object[], int, Comparator)}.
+     *
+     * @throws IllegalArgumentException if the array is null, or if k is
+     * negative or greater than the length of arr
+     * @param arr the array to partially sort
+     * @param k the number of smallest elements to sort
+     */
+    public static void partialSort(int[] arr, int k) {
+        if (arr == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        if (k < 0 || k > arr.length) {
+            throw new IllegalArgumentException("k out of range!");
+        }
+        if (k == 0) {
+            return;
+        }
+        SortStats stats = startStats("partialSort", arr.length);
+        selectHelper(arr, 0, arr.length, k - 1);
+        NaturalSorts.heapSort(arr, 0, k - 1);
+        finishStats(stats);
+    }
+
+    /**
+     * Introselect on arr[lo, hi).
+     *
+     * @param arr the array
+     * @param lo left bound, inclusive
+     * @param hi right bound, exclusive
+     * @param k the index to put in its sorted place, in [lo, hi)
+     */
+    private static void selectHelper(int[] arr, int lo, int hi, int k) {
+        boolean linear = false;
+        int checkpoint = hi - lo;
+        int partitions = 0;
+        while (hi - lo > INSERTION_THRESHOLD) {
+            int pivot = linear
+                    ? medianOfMedians(arr, lo, hi)
+                    : medianOfThree(arr, lo, (lo + hi) >>> 1, hi - 1);
+            long bounds = NaturalSorts.partition(arr, pivot, lo, hi);
+            if (k < lowerBound(bounds)) {
+                hi = lowerBound(bounds);
+            } else if (k >= upperBound(bounds)) {
+                lo = upperBound(bounds);
+            } else {
+                return;
+            }
+            if (!linear && ++partitions == 2) {
+                // every two partitions must at least halve the range
+                linear = hi - lo > checkpoint / 2;
+                checkpoint = hi - lo;
+                partitions = 0;
+            }
+        }
+        NaturalSorts.networkSort(arr, lo, hi);
+    }
+
+    /**
+     * Finds the index of the median of three ints.
+     *
+     * @param arr the array
+     * @param a first index
+     * @param b second index
+     * @param c third index
+     * @return whichever of a, b and c holds the median
+     */
+    private static int medianOfThree(int[] arr, int a, int b, int c) {
+        if (arr[a] < arr[b]) {
+            if (arr[b] < arr[c]) {
+                return b;
+            }
+            return arr[a] < arr[c] ? c : a;
+        }
+        if (arr[a] < arr[c]) {
+            return a;
+        }
+        return arr[b] < arr[c] ? c : b;
+    }
+
+    /**
+     * Median of medians pivot for ints, see
+     * {@link #medianOfMedians(Object[], Comparator, int, int)}.
+     *
+     * @param arr the array
+     * @param lo left bound, inclusive
+     * @param hi right bound, exclusive
+     * @return the index of the pivot
+     */
+    private static int medianOfMedians(int[] arr, int lo, int hi) {
+        int medians = lo;
+        for (int i = lo; i < hi; i += 5) {
+            int end = Math.min(i + 5, hi);
+            NaturalSorts.networkSort(arr, i, end);
+            swap(arr, medians++, i + (end - i - 1) / 2);
+        }
+        int mid = lo + (medians - lo - 1) / 2;
+        selectHelper(arr, lo, medians, mid);
+        return mid;
+    }
+
+    /**
+     * Swaps two ints of an array.
+     *
+     * @param arr the array
+     * @param i first index
+     * @param j second index
+     */
+    private static void swap(int[] arr, int i, int j) {
+        int tmp = arr[i];
+        arr[i] = arr[j];
+        arr[j] = tmp;
+    }
+
+    /**
+     * Implement merge sort.
+     *
+     * It should be:
+     *  stable
+     *
+     * Have a worst case running time of:
+     *  O(n log n)
+     *
+     * And a best case running time of:
+     *  O(n log n)
+     *
+     * You can create more arrays to run mergesort, but at the end,
+     * everything should be merged back into the original T[]
+     * which was passed in.
+     *
+     * ********************* IMPORTANT ************************
+     * FAILURE TO DO SO MAY CAUSE ClassCastException AND CAUSE
+     * YOUR METHOD TO FAIL ALL THE TESTS FOR MERGE SORT
+     * ********************************************************
+     *
+     * Any duplicates in the array should be in the same relative position after
+     * sorting as they were before sorting.
+     *
+     * @throws IllegalArgumentException if the array or comparator is null
+     * @param <T> data type to sort
+     * @param arr the array to be sorted
+     * @param comparator the Comparator used to compare the data in arr
+     */
+    public static <T> void mergeSort(T[] arr, Comparator<T> comparator) {
+        if (arr == null || comparator == null) {
+            throw new IllegalArgumentException("parameters null!");
+        }
+        SortStats stats = startStats("mergeSort", arr.length);
+        mergeSortHelper(arr, counted(comparator, stats), stats, 1);
+        finishStats(stats);
+    }
+
+    /**
+     * This is the helper method for merge sort. It copies both halves out,
+     * sorts them and merges them back into arr.
+     *
+     * @param <T> data type to sort
+     * @param arr the array to be sorted
+     * @param comparator the comparator
+     * @param stats where to record allocations and moves, or null
+     * @param depth recursion depth of this call, the top level being 1
+     */
+    private static <T> void mergeSortHelper(T[] arr, Comparator<T> comparator,
+                                            SortStats stats, int depth) {
+        int length = arr.length;
+        if (length < 2) {
+            return;
+        }
+        if (stats != null) {
+            stats.reachDepth(depth);
+            stats.addScratch((long) length * SortStats.REFERENCE_BYTES);
+            stats.addMoves(2L * length);
+        }
+        int mid = length / 2;
+        T[] arr1 = (T[]) new Object[mid];
+        T[] arr2 = (T[]) new Object[length - mid];
+        for (int i = 0; i < mid; i++) {
+            arr1[i] = arr[i];
+        }
+        int k = 0;
+        for (int j = mid; j < length; j++) {
+            arr2[k++] = arr[j];
+        }
+        mergeSortHelper(arr1, comparator, stats, depth + 1);
+        mergeSortHelper(arr2, comparator, stats, depth + 1);
+        merging(arr1, arr2, arr, comparator);
+    }
+
+    /**
+    * Helper method to merge the two sub-lists;
+    * @param <T> the data type to be sorted
+    * @param arr1 first array
+    * @param arr2 second array
+    * @param orig the original array
+    * @param comparator the comparator
+     */
+    private static <T> void merging(T[] arr1, T[] arr2, T[] orig,
+                                   Comparator<T> comparator) {
+        int i = 0;
+        int j = 0;
+        while (i + j < orig.length) {
+            if (j == arr2.length || (i < arr1.length
+                    && comparator.compare(arr1[i], arr2[j]) < 0)) {
+                orig[i + j] = arr1[i++];
+            } else {
+                orig[i + j] = arr2[j++];
+            }
+        }
+    }
+
+    /**
+     * Parallel merge sort using the common ForkJoinPool and the default
+     * granularity, see {@link #parallelMergeSort(Object[], Comparator, int)}.
+     *
+     * @throws IllegalArgumentException if the array or comparator is null
+     * @param <T> data type to sort
+     * @param arr the array to be sorted
+     * @param comparator the Comparator used to compare the data in arr
+     */
+    public static <T> void parallelMergeSort(T[] arr,
+                                             Comparator<T> comparator) {
+        parallelMergeSort(arr, comparator, PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * Parallel merge sort.
+     *
+     * Both halves of every range larger than threshold are sorted as
+     * separate ForkJoin tasks and then merged in parallel by splitting the
+     * larger run at its middle and binary searching the split point in the
+     * other run. Ranges at or below threshold are sorted sequentially. A
+     * single auxiliary array of length n is allocated for the whole sort.
+     *
+     * It should be:
+     *  stable
+     *
+     * Have a worst case running time of:
+     *  O(n log n)
+     *
+     * And a best case running time of:
+     *  O(n log n)
+     *
+     * Any duplicates in the array should be in the same relative position after
+     * sorting as they were before sorting.
+     *
+     * @throws IllegalArgumentException if the array or comparator is null, or
+     * if threshold is less than 1
+     * @param <T> data type to sort
+     * @param arr the array to be sorted
+     * @param comparator the Comparator used to compare the data in arr
+     * @param threshold size at or below which a range is sorted and merged
+     * sequentially
+     */
+    public static <T> void parallelMergeSort(T[] arr, Comparator<T> comparator,
+                                             int threshold) {
+        if (arr == null || comparator == null) {
+            throw new IllegalArgumentException("parameters null!");
+        }
+        if (threshold < 1) {
+            throw new IllegalArgumentException("threshold must be positive!");
+        }
+        if (arr.length < 2) {
+            return;
+        }
+        SortStats stats = startStats("parallelMergeSort", arr.length);
+        T[] aux = (T[]) new Object[arr.length];
+        if (stats != null) {
+            stats.addScratch((long) arr.length * SortStats.REFERENCE_BYTES);
+        }
+        ForkJoinPool.commonPool().invoke(new MergeSortTask<>(arr, aux, 0,
+                arr.length, false, counted(comparator, stats), threshold));
+        finishStats(stats);
+    }
+
+    /**
+     * Adaptive natural merge sort (TimSort).
+     *
+     * Existing ascending and strictly descending runs are detected and
+     * merged rather than re-sorted, so presorted, reversed and mostly sorted
+     * input cost close to n comparisons. See {@link TimSort} for details.
+     *
+     * It should be:
+     *  stable
+     *
+     * Have a worst case running time of:
+     *  O(n log n)
+     *
+     * And a best case running time of:
+     *  O(n)
+     *
+     * Any duplicates in the array should be in the same relative position after
+     * sorting as they were before sorting.
+     *
+     * @throws IllegalArgumentException if the array or comparator is null
+     * @param <T> data type to sort
+     * @param arr the array to be sorted
+     * @param comparator the Comparator used to compare the data in arr
+     */
+    public static <T> void timSort(T[] arr, Comparator<T> comparator) {
+        if (arr == null || comparator == null) {
+            throw new IllegalArgumentException("parameters null!");
+        }
+        SortStats stats = startStats("timSort", arr.length);
+        TimSort.sort(arr, counted(comparator, stats), stats);
+        finishStats(stats);
+    }
+
+    /**
+     * Merge sort that can be stopped early.
+     *
+     * This is a bottom-up merge sort: blocks of INSERTION_THRESHOLD
+     * elements are insertion sorted first and then merged pairwise, one
+     * level of run widths at a time, between arr and a scratch buffer. The
+     * control is checked before every block and every merge, and the number
+     * of passes completed, counting the block pass, is reported to its
+     * progress callback after every pass. When the control is cancelled or
+     * its deadline passes, the part of the current level that has not been
+     * merged yet is copied over so that arr holds exactly the elements it
+     * was given, in sorted runs, and the sort returns.
+     *
+     * It should be:
+     *  stable
+     *
+     * Have a worst case running time of:
+     *  O(n log n)
+     *
+     * Any duplicates in the array should be in the same relative position after
+     * sorting as they were before sorting. (stable)
+     *
+     * @throws IllegalArgumentException if the array, comparator or control
+     * is null
+     * @param <T> data type to sort
+     * @param arr the array to be sorted
+     * @param comparator the Comparator used to compare the data in arr
+     * @param control how to cancel the sort and where to report progress
+     * @return true if arr was sorted, false if the sort was stopped early
+     */
+    public static <T> boolean mergeSort(T[] arr, Comparator<T> comparator,
+                                        SortControl control) {
+        if (arr == null || comparator == null || control == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        int length = arr.length;
+        SortStats stats = startStats("mergeSort", length);
+        Comparator<T> c = counted(comparator, stats);
+        int levels = 0;
+        for (long width = INSERTION_THRESHOLD; width < length; width *= 2) {
+            levels++;
+        }
+        ControlledRun run = new ControlledRun(control, levels + 1);
+        for (int lo = 0; lo < length; lo += INSERTION_THRESHOLD) {
+            if (run.isCancelled()) {
+                finishStats(stats);
+                return false;
+            }
+            long moves = insertionSort(arr, lo,
+                    Math.min(lo + INSERTION_THRESHOLD, length), c);
+            if (stats != null) {
+                stats.addMoves(moves);
+            }
+        }
+        run.advance(1);
+        T[] src = arr;
+        T[] dst = levels == 0 ? arr : arr.clone();
+        if (stats != null && levels > 0) {
+            stats.addScratch((long) length * SortStats.REFERENCE_BYTES);
+        }
+        for (long width = INSERTION_THRESHOLD; width < length; width *= 2) {
+            int step;
+            for (int lo = 0; lo < length; lo += step) {
+                if (run.isCancelled()) {
+                    // put the merged and the unmerged part together in arr
+                    if (src == arr) {
+                        System.arraycopy(dst, 0, arr, 0, lo);
+                    } else {
+                        System.arraycopy(src, lo, arr, lo, length - lo);
+                    }
+                    finishStats(stats);
+                    return false;
+                }
+                int mid = (int) Math.min(lo + width, length);
+                int hi = (int) Math.min(lo + 2 * width, length);
+                step = hi - lo;
+                if (mid == hi || c.compare(src[mid - 1], src[mid]) <= 0) {
+                    System.arraycopy(src, lo, dst, lo, hi - lo);
+                } else {
+                    mergeRuns(src, lo, mid, mid, hi, dst, lo, c);
+                }
+            }
+            T[] tmp = src;
+            src = dst;
+            dst = tmp;
+            if (stats != null) {
+                stats.addPass();
+                stats.addMoves(length);
+            }
+            run.advance(1);
+        }
+        if (src != arr) {
+            System.arraycopy(src, 0, arr, 0, length);
+        }
+        finishStats(stats);
+        return true;
+    }
+
+    /**
+     * Merge sort that reuses a caller supplied scratch buffer.
+     *
+     * The buffer is filled once with a copy of arr and the two arrays then
+     * swap the roles of source and destination at every level of recursion,
+     * so no element is copied except by a merge. Runs of at most
+     * INSERTION_THRESHOLD elements are finished with insertion sort, and the
+     * merge is replaced by a straight copy when the two halves are already
+     * in order. Nothing is allocated by this method.
+     *
+     * It should be:
+     *  stable
+     *
+     * Have a worst case running time of:
+     *  O(n log n)
+     *
+     * And a best case running time of:
+     *  O(n)
+     *
+     * Any duplicates in the array should be in the same relative position after
+     * sorting as they were before sorting.
+     *
+     * @throws IllegalArgumentException if the array, comparator or buffer is
+     * null, or if the buffer is shorter than the array
+     * @param <T> data type to sort
+     * @param arr the array to be sorted
+     * @param comparator the Comparator used to compare the data in arr
+     * @param buffer scratch space at least as long as arr, its contents are
+     * overwritten
+     */
+    public static <T> void mergeSort(T[] arr, Comparator<T> comparator,
+                                     T[] buffer) {
+        if (arr == null || comparator == null || buffer == null) {
+            throw new IllegalArgumentException("parameters null!");
+        }
+        if (buffer.length < arr.length) {
+            throw new IllegalArgumentException("buffer too small!");
+        }
+        SortStats stats = startStats("mergeSort", arr.length);
+        System.arraycopy(arr, 0, buffer, 0, arr.length);
+        mergeSortInto(buffer, arr, 0, arr.length, counted(comparator, stats));
+        finishStats(stats);
+    }
+
+    /**
+     * Merges k sorted arrays into a new sorted array.
+     *
+     * The runs are merged through a tournament tree of losers (see
+     * {@link LoserTree}), so every element costs one comparison per level of
+     * the tree, about log2 k, and no element is compared against the heads
+     * of runs it has already beaten. Elements that compare equal are taken
+     * from the run that comes first in runs, so the merge is stable with
+     * respect to the order of the runs.
+     *
+     * Have a worst case running time of:
+     *  O(n log k)
+     *
+     * @throws IllegalArgumentException if runs, a run or the comparator is
+     * null
+     * @param <T> data type to merge
+     * @param runs the arrays to merge, each sorted by comparator
+     * @param comparator the Comparator the runs are sorted by
+     * @return a new array holding every element of the runs in sorted order
+     */
+    public static <T> T[] kWayMerge(T[][] runs, Comparator<T> comparator) {
+        if (comparator == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        int total = runsLength(runs);
+        T[] out = (T[]) Array.newInstance(
+                runs.getClass().getComponentType().getComponentType(), total);
+        if (total == 0) {
+            return out;
+        }
+        SortStats stats = startStats("kWayMerge", total);
+        Comparator<T> counting = counted(comparator, stats);
+        int[] next = new int[runs.length];
+        LoserTree tree = new LoserTree(runs.length, (i, j) -> {
+            if (next[i] == runs[i].length || next[j] == runs[j].length) {
+                return exhaustedOrder(next[i] == runs[i].length,
+                        next[j] == runs[j].length, i, j);
+            }
+            int cmp = counting.compare(runs[i][next[i]], runs[j][next[j]]);
+            return cmp != 0 ? cmp : Integer.compare(i, j);
+        });
+        for (int o = 0; o < total; o++) {
+            int w = tree.winner();
+            out[o] = runs[w][next[w]++];
+            tree.replay();
+        }
+        if (stats != null) {
+            stats.addMoves(total);
+            stats.addScratch((long) total * SortStats.REFERENCE_BYTES);
+        }
+        finishStats(stats);
+        return out;
+    }
+
+    /**
+     * Merges k sorted int arrays into a new sorted array, see
+     * {@link #kWayMerge(Object[][], Comparator)}.
+     *
+     * Have a worst case running time of:
+     *  O(n log k)
+     *
+     * @throws IllegalArgumentException if runs or a run is null
+     * @param runs the arrays to merge, each sorted in ascending order
+     * @return a new array holding every element of the runs in sorted order
+     */
+    public static int[] kWayMerge(int[][] runs) {
+        int total = runsLength(runs);
+        int[] out = new int[total];
+        if (total == 0) {
+            return out;
+        }
+        SortStats stats = startStats("kWayMerge", total);
+        int[] next = new int[runs.length];
+        LoserTree tree = new LoserTree(runs.length, (i, j) -> {
+            if (next[i] == runs[i].length || next[j] == runs[j].length) {
+                return exhaustedOrder(next[i] == runs[i].length,
+                        next[j] == runs[j].length, i, j);
+            }
+            int cmp = Integer.compare(runs[i][next[i]], runs[j][next[j]]);
+            return cmp != 0 ? cmp : Integer.compare(i, j);
+        });
+        for (int o = 0; o < total; o++) {
+            int w = tree.winner();
+            out[o] = runs[w][next[w]++];
+            tree.replay();
+        }
+        if (stats != null) {
+            stats.addMoves(total);
+            stats.addScratch((long) total * Integer.BYTES);
+        }
+        finishStats(stats);
+        return out;
+    }
+
+    /**
+     * Merges k sorted long arrays into a new sorted array, see
+     * {@link #kWayMerge(Object[][], Comparator)}.
+     *
+     * Have a worst case running time of:
+     *  O(n log k)
+     *
+     * @throws IllegalArgumentException if runs or a run is null
+     * @param runs the arrays to merge, each sorted in ascending order
+     * @return a new array holding every element of the runs in sorted order
+     */
+    public static long[] kWayMerge(long[][] runs) {
+        int total = runsLength(runs);
+        long[] out = new long[total];
+        if (total == 0) {
+            return out;
+        }
+        SortStats stats = startStats("kWayMerge", total);
+        int[] next = new int[runs.length];
+        LoserTree tree = new LoserTree(runs.length, (i, j) -> {
+            if (next[i] == runs[i].length || next[j] == runs[j].length) {
+                return exhaustedOrder(next[i] == runs[i].length,
+                        next[j] == runs[j].length, i, j);
+            }
+            int cmp = Long.compare(runs[i][next[i]], runs[j][next[j]]);
+            return cmp != 0 ? cmp : Integer.compare(i, j);
+        });
+        for (int o = 0; o < total; o++) {
+            int w = tree.winner();
+            out[o] = runs[w][next[w]++];
+            tree.replay();
+        }
+        if (stats != null) {
+            stats.addMoves(total);
+            stats.addScratch((long) total * Long.BYTES);
+        }
+        finishStats(stats);
+        return out;
+    }
+
+    /**
+     * Merges k sorted double arrays into a new sorted array, see
+     * {@link #kWayMerge(Object[][], Comparator)}.
+     *
+     * Have a worst case running time of:
+     *  O(n log k)
+     *
+     * @throws IllegalArgumentException if runs or a run is null
+     * @param runs the arrays to merge, each sorted in ascending order
+     * @return a new array holding every element of the runs in sorted order
+     */
+    public static double[] kWayMerge(double[][] runs) {
+        int total = runsLength(runs);
+        double[] out = new double[total];
+        if (total == 0) {
+            return out;
+        }
+        SortStats stats = startStats("kWayMerge", total);
+        int[] next = new int[runs.length];
+        LoserTree tree = new LoserTree(runs.length, (i, j) -> {
+            if (next[i] == runs[i].length || next[j] == runs[j].length) {
+                return exhaustedOrder(next[i] == runs[i].length,
+                        next[j] == runs[j].length, i, j);
+            }
+            int cmp = Double.compare(runs[i][next[i]], runs[j][next[j]]);
+            return cmp != 0 ? cmp : Integer.compare(i, j);
+        });
+        for (int o = 0; o < total; o++) {
+            int w = tree.winner();
+            out[o] = runs[w][next[w]++];
+            tree.replay();
+        }
+        if (stats != null) {
+            stats.addMoves(total);
+            stats.addScratch((long) total * Double.BYTES);
+        }
+        finishStats(stats);
+        return out;
+    }
+
+    /**
+     * Lazily merges k sorted iterators.
+     *
+     * Works like {@link #kWayMerge(Object[][], Comparator)}, but elements
+     * are pulled from the inputs only as the returned iterator needs them:
+     * at any time at most one element of every input has been read ahead.
+     * Elements that compare equal come from the earlier input first.
+     *
+     * Have a worst case running time of:
+     *  O(n log k)
+     *
+     * @throws IllegalArgumentException if inputs, an input or the comparator
+     * is null
+     * @param <T> data type to merge
+     * @param inputs the iterators to merge, each sorted by comparator
+     * @param comparator the Comparator the inputs are sorted by
+     * @return an iterator over every element of the inputs in sorted order
+     */
+    public static <T> Iterator<T> kWayMerge(List<Iterator<T>> inputs,
+                                            Comparator<T> comparator) {
+        if (inputs == null || comparator == null || inputs.contains(null)) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        return new MergeIterator<>(new ArrayList<>(inputs), comparator);
+    }
+
+    /**
+     * Validates the runs of a k-way merge and adds up their lengths.
+     *
+     * @throws IllegalArgumentException if runs or a run is null, or if the
+     * runs hold more than Integer.MAX_VALUE elements together
+     * @param runs the arrays to merge
+     * @return the total number of elements
+     */
+    private static int runsLength(Object[] runs) {
+        if (runs == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        long total = 0;
+        for (Object run : runs) {
+            if (run == null) {
+                throw new IllegalArgumentException("parameter null!");
+            }
+            total += Array.getLength(run);
+        }
+        if (total > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("runs too long to merge!");
+        }
+        return (int) total;
+    }
+
+    /**
+     * Orders two sources of a k-way merge of which at least one is
+     * exhausted: exhausted sources lose against every other source.
+     *
+     * @param iDone whether source i is exhausted
+     * @param jDone whether source j is exhausted
+     * @param i the first source
+     * @param j the second source
+     * @return a negative number if source i wins, a positive one if j wins
+     */
+    private static int exhaustedOrder(boolean iDone, boolean jDone, int i,
+                                      int j) {
+        if (iDone && jDone) {
+            return Integer.compare(i, j);
+        }
+        return iDone ? 1 : -1;
+    }
+
+    /**
+     * Sorts [lo, hi) into dst, using src as scratch. Both arrays must hold
+     * the same elements in [lo, hi) when called.
+     *
+     * @param <T> data type to sort
+     * @param src scratch copy of the range
+     * @param dst array that holds the sorted range afterwards
+     * @param lo first index, inclusive
+     * @param hi last index, exclusive
+     * @param comparator the comparator
+     */
+    private static <T> void mergeSortInto(T[] src, T[] dst, int lo, int hi,
+                                          Comparator<T> comparator) {
+        if (hi - lo <= INSERTION_THRESHOLD) {
+            insertionSort(dst, lo, hi, comparator);
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        mergeSortInto(dst, src, lo, mid, comparator);
+        mergeSortInto(dst, src, mid, hi, comparator);
+        if (comparator.compare(src[mid - 1], src[mid]) <= 0) {
+            System.arraycopy(src, lo, dst, lo, hi - lo);
+            return;
+        }
+        mergeRuns(src, lo, mid, mid, hi, dst, lo, comparator);
+    }
+
+    /**
+     * Stably merges src[lo1, hi1) and src[lo2, hi2) into dst starting at out.
+     * On ties the element from the first run is taken first.
+     *
+     * @param <T> data type being merged
+     * @param src array holding both runs
+     * @param lo1 start of the first run, inclusive
+     * @param hi1 end of the first run, exclusive
+     * @param lo2 start of the second run, inclusive
+     * @param hi2 end of the second run, exclusive
+     * @param dst array to merge into
+     * @param out first index written in dst
+     * @param comparator the comparator
+     */
+    private static <T> void mergeRuns(T[] src, int lo1, int hi1, int lo2,
+                                      int hi2, T[] dst, int out,
+                                      Comparator<T> comparator) {
+        int i = lo1;
+        int j = lo2;
+        while (i < hi1 && j < hi2) {
+            if (comparator.compare(src[j], src[i]) < 0) {
+                dst[out++] = src[j++];
+            } else {
+                dst[out++] = src[i++];
+            }
+        }
+        if (i < hi1) {
+            System.arraycopy(src, i, dst, out, hi1 - i);
+        } else if (j < hi2) {
+            System.arraycopy(src, j, dst, out, hi2 - j);
+        }
+    }
+
+    /**
+     * Finds the first index in arr[lo, hi) whose element is not less than
+     * key, or whose element is greater than key when upper is true.
+     *
+     * @param <T> data type being searched
+     * @param arr sorted array to search
+     * @param lo first index, inclusive
+     * @param hi last index, exclusive
+     * @param key the key to search for
+     * @param upper whether elements equal to key are skipped
+     * @param comparator the comparator
+     * @return the insertion point of key
+     */
+    private static <T> int binarySearchBound(T[] arr, int lo, int hi, T key,
+                                             boolean upper,
+                                             Comparator<T> comparator) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = comparator.compare(arr[mid], key);
+            if (cmp < 0 || (upper && cmp == 0)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * ForkJoin task that sorts arr[lo, hi) for parallelMergeSort, leaving
+     * the sorted range in arr or in aux.
+     *
+     * The two halves are sorted into whichever array the range is not
+     * sorted into and then merged across, so the arrays swap roles at every
+     * level like in {@link #mergeSortInto(Object[], Object[], int, int,
+     * Comparator)} and no range is ever copied back before a merge.
+     *
+     * @param <T> data type to sort
+     */
+    private static final class MergeSortTask<T> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final T[] arr;
+        private final T[] aux;
+        private final int lo;
+        private final int hi;
+        private final boolean intoAux;
+        private final Comparator<T> comparator;
+        private final int threshold;
+
+        /**
+         * Creates the task.
+         *
+         * @param arr the array holding the range to sort
+         * @param aux scratch array as long as arr
+         * @param lo first index, inclusive
+         * @param hi last index, exclusive
+         * @param intoAux whether the sorted range goes to aux instead of arr
+         * @param comparator the comparator
+         * @param threshold size at or below which work is done sequentially
+         */
+        MergeSortTask(T[] arr, T[] aux, int lo, int hi, boolean intoAux,
+                      Comparator<T> comparator, int threshold) {
+            this.arr = arr;
+            this.aux = aux;
+            this.lo = lo;
+            this.hi = hi;
+            this.intoAux = intoAux;
+            this.comparator = comparator;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            T[] dst = intoAux ? aux : arr;
+            T[] src = intoAux ? arr : aux;
+            if (hi - lo <= threshold) {
+                System.arraycopy(arr, lo, aux, lo, hi - lo);
+                mergeSortInto(src, dst, lo, hi, comparator);
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new MergeSortTask<>(arr, aux, lo, mid, !intoAux,
+                    comparator, threshold), new MergeSortTask<>(arr, aux,
+                    mid, hi, !intoAux, comparator, threshold));
+            if (comparator.compare(src[mid - 1], src[mid]) <= 0) {
+                System.arraycopy(src, lo, dst, lo, hi - lo);
+                return;
+            }
+            new MergeTask<>(src, lo, mid, mid, hi, dst, lo, comparator,
+                    threshold).compute();
+        }
+    }
+
+    /**
+     * ForkJoin task that quick sorts arr[lo, hi) for parallelQuickSort.
+     *
+     * @param <T> data type to sort
+     */
+    private static final class QuickSortTask<T> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final T[] arr;
+        private final Comparator<T> comparator;
+        private final Random rand;
+        private final int lo;
+        private final int hi;
+        private final int depth;
+        private final int threshold;
+
+        /**
+         * Creates the task.
+         *
+         * @param arr the array to be sorted
+         * @param comparator the comparator
+         * @param rand pivot source, used by this task only
+         * @param lo left bound, inclusive
+         * @param hi right bound, exclusive
+         * @param depth partitioning levels left before heap sort
+         * @param threshold size at or below which work is done sequentially
+         */
+        QuickSortTask(T[] arr, Comparator<T> comparator, Random rand, int lo,
+                      int hi, int depth, int threshold) {
+            this.arr = arr;
+            this.comparator = comparator;
+            this.rand = rand;
+            this.lo = lo;
+            this.hi = hi;
+            this.depth = depth;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= threshold) {
+                quickSortHelper(arr, comparator, rand, lo, hi, depth, null);
+                return;
+            }
+            if (depth == 0) {
+                heapSort(arr, lo, hi, comparator);
+                return;
+            }
+            long bounds = partition(arr, comparator,
+                    rand.nextInt(hi - lo) + lo, lo, hi);
+            Random leftRand = new Random(rand.nextLong());
+            Random rightRand = new Random(rand.nextLong());
+            invokeAll(new QuickSortTask<>(arr, comparator, leftRand, lo,
+                    lowerBound(bounds), depth - 1, threshold),
+                    new QuickSortTask<>(arr, comparator, rightRand,
+                    upperBound(bounds), hi, depth - 1, threshold));
+        }
+    }
+
+    /**
+     * The iterator behind sortedIterator. Everything before next is sorted
+     * and in place, everything in [next, ready) is in its final place too,
+     * and the stack holds the ends of the ranges still to be partitioned,
+     * nearest on top: every element before a bound is no greater than any
+     * element after it.
+     *
+     * @param <T> data type to sort
+     */
+    private static final class IncrementalQuickSort<T> implements Iterator<T> {
+        private final T[] arr;
+        private final Comparator<T> comparator;
+        private final Random rand;
+        private final SortStats stats;
+        private final int maxBounds;
+        private int[] bounds = new int[16];
+        private int size;
+        private int next;
+        private int ready;
+
+        /**
+         * Creates the iterator.
+         *
+         * @param arr the array to sort
+         * @param comparator the comparator
+         * @param rand the randomizer
+         * @param stats where to record partitions and moves, or null
+         */
+        IncrementalQuickSort(T[] arr, Comparator<T> comparator, Random rand,
+                             SortStats stats) {
+            this.arr = arr;
+            this.comparator = comparator;
+            this.rand = rand;
+            this.stats = stats;
+            this.maxBounds = introDepth(arr.length);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < arr.length;
+        }
+
+        @Override
+        public T next() {
+            if (next >= arr.length) {
+                throw new NoSuchElementException();
+            }
+            if (next == ready) {
+                sortFront();
+            }
+            T item = arr[next++];
+            if (next == arr.length) {
+                finishStats(stats);
+            }
+            return item;
+        }
+
+        /**
+         * Partitions the range in front of next until at least its first
+         * element is in its final place, and moves ready past it.
+         */
+        private void sortFront() {
+            while (true) {
+                while (size > 0 && bounds[size - 1] <= next) {
+                    size--;
+                }
+                int hi = size > 0 ? bounds[size - 1] : arr.length;
+                if (hi - next <= INSERTION_THRESHOLD) {
+                    long moves = insertionSort(arr, next, hi, comparator);
+                    if (stats != null) {
+                        stats.addMoves(moves);
+                    }
+                    ready = hi;
+                    return;
+                }
+                if (size >= maxBounds) {
+                    heapSort(arr, next, hi, comparator);
+                    ready = hi;
+                    return;
+                }
+                long partition = partition(arr, comparator,
+                        rand.nextInt(hi - next) + next, next, hi);
+                int lt = lowerBound(partition);
+                int gt = upperBound(partition);
+                if (stats != null) {
+                    stats.addPartition(Math.min(lt - next, hi - gt),
+                            hi - next);
+                    stats.addMoves((lt - next) + (hi - gt));
+                    stats.reachDepth(size + 1);
+                }
+                if (lt == next) {
+                    // the smallest elements were all equal to the pivot
+                    ready = gt;
+                    return;
+                }
+                if (size + 2 > bounds.length) {
+                    bounds = Arrays.copyOf(bounds, bounds.length * 2);
+                }
+                if (gt < hi) {
+                    bounds[size++] = gt;
+                }
+                bounds[size++] = lt;
+            }
+        }
+    }
+
+    /**
+     * The iterator behind the lazy k-way merge. heads holds the next
+     * element of every input that is not exhausted yet.
+     *
+     * @param <T> data type to merge
+     */
+    private static final class MergeIterator<T> implements Iterator<T> {
+        private final List<Iterator<T>> inputs;
+        private final T[] heads;
+        private final boolean[] done;
+        private final LoserTree tree;
+
+        /**
+         * Reads the first element of every input and plays the initial
+         * tournament.
+         *
+         * @param inputs the iterators to merge
+         * @param comparator the comparator
+         */
+        MergeIterator(List<Iterator<T>> inputs, Comparator<T> comparator) {
+            int k = inputs.size();
+            this.inputs = inputs;
+            this.heads = (T[]) new Object[k];
+            this.done = new boolean[k];
+            for (int i = 0; i < k; i++) {
+                advance(i);
+            }
+            this.tree = k == 0 ? null : new LoserTree(k, (i, j) -> {
+                if (done[i] || done[j]) {
+                    return exhaustedOrder(done[i], done[j], i, j);
+                }
+                int cmp = comparator.compare(heads[i], heads[j]);
+                return cmp != 0 ? cmp : Integer.compare(i, j);
+            });
+        }
+
+        @Override
+        public boolean hasNext() {
+            return tree != null && !done[tree.winner()];
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int w = tree.winner();
+            T item = heads[w];
+            advance(w);
+            tree.replay();
+            return item;
+        }
+
+        /**
+         * Moves input i on to its next element.
+         *
+         * @param i the input
+         */
+        private void advance(int i) {
+            Iterator<T> input = inputs.get(i);
+            if (input.hasNext()) {
+                heads[i] = input.next();
+            } else {
+                heads[i] = null;
+                done[i] = true;
+            }
+        }
+    }
+
+    /**
+     * The progress of one cancellable sort: counts the work done and
+     * reports it to the control.
+     */
+    private static final class ControlledRun {
+        private final SortControl control;
+        private final long total;
+        private long done;
+
+        /**
+         * Starts tracking a sort.
+         *
+         * @param control the control of the sort
+         * @param total units of work in the whole sort
+         */
+        ControlledRun(SortControl control, long total) {
+            this.control = control;
+            this.total = total;
+        }
+
+        /**
+         * Records finished work.
+         *
+         * @param units units of work just finished
+         */
+        void advance(long units) {
+            done += units;
+            control.report(done, total);
+        }
+
+        /**
+         * Tells whether the sort should stop.
+         *
+         * @return true if the control was cancelled or ran out of time
+         */
+        boolean isCancelled() {
+            return control.isCancelled();
+        }
+    }
+
+    /**
+     * ForkJoin task that stably merges two sorted runs of src into dst.
+     *
+     * @param <T> data type being merged
+     */
+    private static final class MergeTask<T> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final T[] src;
+        private final int lo1;
+        private final int hi1;
+        private final int lo2;
+        private final int hi2;
+        private final T[] dst;
+        private final int out;
+        private final Comparator<T> comparator;
+        private final int threshold;
+
+        /**
+         * Creates the task.
+         *
+         * @param src array holding both runs
+         * @param lo1 start of the first run, inclusive
+         * @param hi1 end of the first run, exclusive
+         * @param lo2 start of the second run, inclusive
+         * @param hi2 end of the second run, exclusive
+         * @param dst array to merge into
+         * @param out first index written in dst
+         * @param comparator the comparator
+         * @param threshold size at or below which work is done sequentially
+         */
+        MergeTask(T[] src, int lo1, int hi1, int lo2, int hi2, T[] dst,
+                  int out, Comparator<T> comparator, int threshold) {
+            this.src = src;
+            this.lo1 = lo1;
+            this.hi1 = hi1;
+            this.lo2 = lo2;
+            this.hi2 = hi2;
+            this.dst = dst;
+            this.out = out;
+            this.comparator = comparator;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            int n1 = hi1 - lo1;
+            int n2 = hi2 - lo2;
+            // two single elements cannot be split any further
+            if (n1 + n2 <= Math.max(threshold, 2) || n1 == 0 || n2 == 0) {
+                mergeRuns(src, lo1, hi1, lo2, hi2, dst, out, comparator);
+                return;
+            }
+            int split1;
+            int split2;
+            if (n1 >= n2) {
+                // equal elements of the second run must follow the pivot
+                split1 = (lo1 + hi1) >>> 1;
+                split2 = binarySearchBound(src, lo2, hi2, src[split1], false,
+                        comparator);
+            } else {
+                // equal elements of the first run must precede the pivot
+                split2 = (lo2 + hi2) >>> 1;
+                split1 = binarySearchBound(src, lo1, hi1, src[split2], true,
+                        comparator);
+            }
+            int mid = out + (split1 - lo1) + (split2 - lo2);
+            invokeAll(new MergeTask<>(src, lo1, split1, lo2, split2, dst, out,
+                    comparator, threshold), new MergeTask<>(src, split1, hi1,
+                    split2, hi2, dst, mid, comparator, threshold));
+        }
+    }
+
+    /**
+     * Insertion sort for ints in ascending order, see
+     * {@link #insertionSort(int[], IntComparator)}.
+     *
+     * @throws IllegalArgumentException if the array is null
+     * @param arr the array that must be sorted after the method runs
+     */
+    public static void insertionSort(int[] arr) {
+        if (arr == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        SortStats stats = startStats("insertionSort", arr.length);
+        long moves = NaturalSorts.insertionSort(arr, 0, arr.length);
+        if (stats != null) {
+            stats.addMoves(moves);
+        }
+        finishStats(stats);
+    }
+
+    /**
+     * Insertion sort for ints ordered by a primitive comparator, so that no
+     * element is boxed.
+     *
+     * It should be:
+     *  in-place
+     *  stable
+     *
+     * Have a worst case running time of:
+     *  O(n^2)
+     *
+     * And a best case running time of:
+     *  O(n)
+     *
+     * @throws IllegalArgumentException if the array or comparator is null
+     * @param arr the array that must be sorted after the method runs
+     * @param comparator the comparator used to compare the data in arr
+     */
+    public static void insertionSort(int[] arr, IntComparator comparator) {
+        if (arr == null || comparator == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        SortStats stats = startStats("insertionSort", arr.length);
+        long moves = PrimitiveSorts.insertionSort(arr, 0, arr.length,
+                countedInt(comparator, stats));
+        if (stats != null) {
+            stats.addMoves(moves);
+        }
+        finishStats(stats);
+    }
+
+    /**
+     * Quick sort for ints in ascending order, see
+     * {@link #quickSort(int[], IntComparator, Random)}.
+     *
+     * @throws IllegalArgumentException if the array or rand is null
+     * @param arr the array that must be sorted after the method runs
+     * @param rand the Random object used to select pivots
+     */
+    public static void quickSort(int[] arr, Random rand) {
+        if (arr == null || rand == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        SortStats stats = startStats("quickSort", arr.length);
+        NaturalSorts.quickSort(arr, rand, 0, arr.length,
+                introDepth(arr.length), stats);
+        finishStats(stats);
+    }
+
+    /**
+     * Quick sort for ints ordered by a primitive comparator. This is the
+     * same three-way introsort as
+     * {@link #quickSort(Object[], Comparator, Random)} without boxing any
+     * element.
+     *
+     * It should be:
+     *  in-place
+     *
+     * Have a worst case running time of:
+     *  O(n log n)
+     *
+     * And a best case running time of:
+     *  O(n)
+     *
+     * @throws IllegalArgumentException if the array or comparator or rand is
+     * null
+     * @param arr the array that must be sorted after the method runs
+     * @param comparator the comparator used to compare the data in arr
+     * @param rand the Random object used to select pivots
+     */
+    public static void quickSort(int[] arr, IntComparator comparator,
+                                 Random rand) {
+        if (arr == null || comparator == null || rand == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        SortStats stats = startStats("quickSort", arr.length);
+        PrimitiveSorts.quickSort(arr, countedInt(comparator, stats), rand, 0,
+                arr.length, introDepth(arr.length), stats);
+        finishStats(stats);
+    }
+
+    /**
+     * Merge sort for ints in ascending order, see
+     * {@link #mergeSort(int[], IntComparator)}.
+     *
+     * @throws IllegalArgumentException if the array is null
+     * @param arr the array to be sorted
+     */
+    public static void mergeSort(int[] arr) {
+        if (arr == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        SortStats stats = startStats("mergeSort", arr.length);
+        if (stats != null) {
+            stats.addScratch((long) arr.length * Integer.BYTES);
+        }
+        NaturalSorts.mergeSort(arr.clone(), arr, 0, arr.length);
+        finishStats(stats);
+    }
+
+    /**
+     * Merge sort for ints ordered by a primitive comparator. Works like
+     * {@link #mergeSort(Object[], Comparator, Object[])} with a buffer
+     * allocated by this method.
+     *
+     * It should be:
+     *  stable
+     *
+     * Have a worst case running time of:
+     *  O(n log n)
+     *
+     * And a best case running time of:
+     *  O(n)
+     *
+     * Any duplicates in the array should be in the same relative position after
+     * sorting as they were before sorting.
+     *
+     * @throws IllegalArgumentException if the array or comparator is null
+     * @param arr the array to be sorted
+     * @param comparator the comparator used to compare the data in arr
+     */
+    public static void mergeSort(int[] arr, IntComparator comparator) {
+        if (arr == null || comparator == null) {
+            throw new IllegalArgumentException("parameters null!");
+        }
+        SortStats stats = startStats("mergeSort", arr.length);
+        if (stats != null) {
+            stats.addScratch((long) arr.length * Integer.BYTES);
+        }
+        PrimitiveSorts.mergeSort(arr.clone(), arr, 0, arr.length,
+                countedInt(comparator, stats));
+        finishStats(stats);
+    }
+
+    /**
+     * Insertion sort for longs in ascending order, see
+     * {@link #insertionSort(long[], LongComparator)}.
+     *
+     * @throws IllegalArgumentException if the array is null
+     * @param arr the array that must be sorted after the method runs
+     */
+    public static void insertionSort(long[] arr) {
+        if (arr == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        SortStats stats = startStats("insertionSort", arr.length);
+        long moves = NaturalSorts.insertionSort(arr, 0, arr.length);
+        if (stats != null) {
+            stats.addMoves(moves);
+        }
+        finishStats(stats);
+    }
+
+    /**
+     * Insertion sort for longs ordered by a primitive comparator, so that no
+     * element is boxed.
+     *
+     * It should be:
+     *  in-place
+     *  stable
+     *
+     * Have a worst case running time of:
+     *  O(n^2)
+     *
+     * And a best case running time of:
+     *  O(n)
+     *
+     * @throws IllegalArgumentException if the array or comparator is null
+     * @param arr the array that must be sorted after the method runs
+     * @param comparator the comparator used to compare the data in arr
+     */
+    public static void insertionSort(long[] arr, LongComparator comparator) {
+        if (arr == null || comparator == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        SortStats stats = startStats("insertionSort", arr.length);
+        long moves = PrimitiveSorts.insertionSort(arr, 0, arr.length,
+                countedLong(comparator, stats));
+        if (stats != null) {
+            stats.addMoves(moves);
+        }
+        finishStats(stats);
+    }
+
+    /**
+     * Quick sort for longs in ascending order, see
+     * {@link #quickSort(long[], LongComparator, Random)}.
+     *
+     * @throws IllegalArgumentException if the array or rand is null
+     * @param arr the array that must be sorted after the method runs
+     * @param rand the Random object used to select pivots
+     */
+    public static void quickSort(long[] arr, Random rand) {
+        if (arr == null || rand == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        SortStats stats = startStats("quickSort", arr.length);
+        NaturalSorts.quickSort(arr, rand, 0, arr.length,
+                introDepth(arr.length), stats);
+        finishStats(stats);
+    }
+
+    /**
+     * Quick sort for longs ordered by a primitive comparator. This is the
+     * same three-way introsort as
+     * {@link #quickSort(Object[], Comparator, Random)} without boxing any
+     * element.
+     *
+     * It should be:
+     *  in-place
+     *
+     * Have a worst case running time of:
+     *  O(n log n)
+     *
+     * And a best case running time of:
+     *  O(n)
+     *
+     * @throws IllegalArgumentException if the array or comparator or rand is
+     * null
+     * @param arr the array that must be sorted after the method runs
+     * @param comparator the comparator used to compare the data in arr
+     * @param rand the Random object used to select pivots
+     */
+    public static void quickSort(long[] arr, LongComparator comparator,
+                                 Random rand) {
+        if (arr == null || comparator == null || rand == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        SortStats stats = startStats("quickSort", arr.length);
+        PrimitiveSorts.quickSort(arr, countedLong(comparator, stats), rand, 0,
+                arr.length, introDepth(arr.length), stats);
+        finishStats(stats);
+    }
+
+    /**
+     * Merge sort for longs in ascending order, see
+     * {@link #mergeSort(long[], LongComparator)}.
+     *
+     * @throws IllegalArgumentException if the array is null
+     * @param arr the array to be sorted
+     */
+    public static void mergeSort(long[] arr) {
+        if (arr == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        SortStats stats = startStats("mergeSort", arr.length);
+        if (stats != null) {
+            stats.addScratch((long) arr.length * Long.BYTES);
+        }
+        NaturalSorts.mergeSort(arr.clone(), arr, 0, arr.length);
+        finishStats(stats);
+    }
+
+    /**
+     * Merge sort for longs ordered by a primitive comparator. Works like
+     * {@link #mergeSort(Object[], Comparator, Object[])} with a buffer
+     * allocated by this method.
+     *
+     * It should be:
+     *  stable
+     *
+     * Have a worst case running time of:
+     *  O(n log n)
+     *
+     * And a best case running time of:
+     *  O(n)
+     *
+     * Any duplicates in the array should be in the same relative position after
+     * sorting as they were before sorting.
+     *
+     * @throws IllegalArgumentException if the array or comparator is null
+     * @param arr the array to be sorted
+     * @param comparator the comparator used to compare the data in arr
+     */
+    public static void mergeSort(long[] arr, LongComparator comparator) {
+        if (arr == null || comparator == null) {
+            throw new IllegalArgumentException("parameters null!");
+        }
+        SortStats stats = startStats("mergeSort", arr.length);
+        if (stats != null) {
+            stats.addScratch((long) arr.length * Long.BYTES);
+        }
+        PrimitiveSorts.mergeSort(arr.clone(), arr, 0, arr.length,
+                countedLong(comparator, stats));
+        finishStats(stats);
+    }
+
+    /**
+     * Insertion sort for doubles in the order of
+     * {@link Double#compare(double, double)}, see
+     * {@link #insertionSort(double[], DoubleComparator)}.
+     *
+     * @throws IllegalArgumentException if the array is null
+     * @param arr the array that must be sorted after the method runs
+     */
+    public static void insertionSort(double[] arr) {
+        if (arr == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        SortStats stats = startStats("insertionSort", arr.length);
+        long moves = NaturalSorts.insertionSort(arr, 0, arr.length);
+        if (stats != null) {
+            stats.addMoves(moves);
+        }
+        finishStats(stats);
+    }
+
+    /**
+     * Insertion sort for doubles ordered by a primitive comparator, so that no
+     * element is boxed.
+     *
+     * It should be:
+     *  in-place
+     *  stable
+     *
+     * Have a worst case running time of:
+     *  O(n^2)
+     *
+     * And a best case running time of:
+     *  O(n)
+     *
+     * @throws IllegalArgumentException if the array or comparator is null
+     * @param arr the array that must be sorted after the method runs
+     * @param comparator the comparator used to compare the data in arr
+     */
+    public static void insertionSort(double[] arr,
+                                     DoubleComparator comparator) {
+        if (arr == null || comparator == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        SortStats stats = startStats("insertionSort", arr.length);
+        long moves = PrimitiveSorts.insertionSort(arr, 0, arr.length,
+                countedDouble(comparator, stats));
+        if (stats != null) {
+            stats.addMoves(moves);
+        }
+        finishStats(stats);
+    }
+
+    /**
+     * Quick sort for doubles in the order of
+     * {@link Double#compare(double, double)}, see
+     * {@link #quickSort(double[], DoubleComparator, Random)}.
+     *
+     * @throws IllegalArgumentException if the array or rand is null
+     * @param arr the array that must be sorted after the method runs
+     * @param rand the Random object used to select pivots
+     */
+    public static void quickSort(double[] arr, Random rand) {
+        if (arr == null || rand == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        SortStats stats = startStats("quickSort", arr.length);
+        NaturalSorts.quickSort(arr, rand, 0, arr.length,
+                introDepth(arr.length), stats);
+        finishStats(stats);
+    }
+
+    /**
+     * Quick sort for doubles ordered by a primitive comparator. This is the
+     * same three-way introsort as
+     * {@link #quickSort(Object[], Comparator, Random)} without boxing any
+     * element.
+     *
+     * It should be:
+     *  in-place
+     *
+     * Have a worst case running time of:
+     *  O(n log n)
+     *
+     * And a best case running time of:
+     *  O(n)
+     *
+     * @throws IllegalArgumentException if the array or comparator or rand is
+     * null
+     * @param arr the array that must be sorted after the method runs
+     * @param comparator the comparator used to compare the data in arr
+     * @param rand the Random object used to select pivots
+     */
+    public static void quickSort(double[] arr, DoubleComparator comparator,
+                                 Random rand) {
+        if (arr == null || comparator == null || rand == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        SortStats stats = startStats("quickSort", arr.length);
+        PrimitiveSorts.quickSort(arr, countedDouble(comparator, stats), rand, 0,
+                arr.length, introDepth(arr.length), stats);
+        finishStats(stats);
+    }
+
+    /**
+     * Merge sort for doubles in the order of
+     * {@link Double#compare(double, double)}, see
+     * {@link #mergeSort(double[], DoubleComparator)}.
+     *
+     * @throws IllegalArgumentException if the array is null
+     * @param arr the array to be sorted
+     */
+    public static void mergeSort(double[] arr) {
+        if (arr == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        SortStats stats = startStats("mergeSort", arr.length);
+        if (stats != null) {
+            stats.addScratch((long) arr.length * Double.BYTES);
+        }
+        NaturalSorts.mergeSort(arr.clone(), arr, 0, arr.length);
+        finishStats(stats);
+    }
+
+    /**
+     * Merge sort for doubles ordered by a primitive comparator. Works like
+     * {@link #mergeSort(Object[], Comparator, Object[])} with a buffer
+     * allocated by this method.
+     *
+     * It should be:
+     *  stable
+     *
+     * Have a worst case running time of:
+     *  O(n log n)
+     *
+     * And a best case running time of:
+     *  O(n)
+     *
+     * Any duplicates in the array should be in the same relative position after
+     * sorting as they were before sorting.
+     *
+     * @throws IllegalArgumentException if the array or comparator is null
+     * @param arr the array to be sorted
+     * @param comparator the comparator used to compare the data in arr
+     */
+    public static void mergeSort(double[] arr, DoubleComparator comparator) {
+        if (arr == null || comparator == null) {
+            throw new IllegalArgumentException("parameters null!");
+        }
+        SortStats stats = startStats("mergeSort", arr.length);
+        if (stats != null) {
+            stats.addScratch((long) arr.length * Double.BYTES);
+        }
+        PrimitiveSorts.mergeSort(arr.clone(), arr, 0, arr.length,
+                countedDouble(comparator, stats));
+        finishStats(stats);
+    }
+
+    /**
+     * Implement radix sort.
+     *
+     * Remember you CANNOT convert the ints to strings at any point in your
+     * code!
+     *
+     * It should be:
+     *  stable
+     *
+     * Have a worst case running time of:
+     *  O(kn)
+     *
+     * And a best case running time of:
+     *  O(kn)
+     *
+     * Any duplicates in the array should be in the same relative position after
+     * sorting as they were before sorting. (stable)
+     *
+     * DO NOT USE {@code Math.pow()} in your sort. Instead, if you need to, use
+     * the provided {@code pow()} method below.
+     *
+     * You may use an ArrayList or LinkedList if you wish, but it may only be
+     * used inside radix sort and any radix sort helpers. Do NOT use these
+     * classes with other sorts.
+     *
+     * @throws IllegalArgumentException if the array is null
+     * @param arr the array to be sorted
+     * @return the sorted array
+     */
+    public static int[] radixSort(int[] arr) {
+        if (arr == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        SortStats stats = startStats("radixSort", arr.length);
+        if (stats != null) {
+            stats.addScratch((long) arr.length * Integer.BYTES);
+        }
+        radixSortHelper(arr, new int[arr.length], stats);
+        finishStats(stats);
+        return arr;
+    }
+
+    /**
+     * Radix sort that reuses a caller supplied scratch buffer.
+     *
+     * Sorts one byte of the key per pass (least significant first) with a
+     * counting scatter between arr and buffer, so nothing is boxed and no
+     * buckets are allocated. The sign bit is flipped when the key is read so
+     * negatives order before positives without a separate pass. Passes in
+     * which every element shares the same byte are skipped. Arrays of at
+     * most NETWORK_THRESHOLD elements are sorted with a sorting network
+     * instead, which beats building four histograms for a handful of keys.
+     *
+     * It should be:
+     *  stable
+     *
+     * Have a worst case running time of:
+     *  O(kn)
+     *
+     * @throws IllegalArgumentException if the array or buffer is null, or if
+     * the buffer is shorter than the array
+     * @param arr the array to be sorted
+     * @param buffer scratch space at least as long as arr, its contents are
+     * overwritten
+     * @return the sorted array
+     */
+    public static int[] radixSort(int[] arr, int[] buffer) {
+        checkRadixBuffer(arr, buffer, arr == null ? 0 : arr.length,
+                buffer == null ? 0 : buffer.length);
+        SortStats stats = startStats("radixSort", arr.length);
+        radixSortHelper(arr, buffer, stats);
+        finishStats(stats);
+        return arr;
+    }
+
+    /**
+     * This is the helper method for the sequential int radix sorts.
+     *
+     * @param arr the array to be sorted
+     * @param buffer scratch space at least as long as arr
+     * @param stats where to record passes and moves, or null
+     */
+    private static void radixSortHelper(int[] arr, int[] buffer,
+                                        SortStats stats) {
+        if (arr.length <= NETWORK_THRESHOLD) {
+            NaturalSorts.networkSort(arr, 0, arr.length);
+            return;
+        }
+        int[] sorted = radixPasses(arr, buffer, 0, arr.length,
+                Integer.SIZE / RADIX_BITS, stats);
+        if (sorted != arr) {
+            System.arraycopy(sorted, 0, arr, 0, arr.length);
+            if (stats != null) {
+                stats.addMoves(arr.length);
+            }
+        }
+    }
+
+    /**
+     * Parallel radix sort.
+     *
+     * The array is cut into parallelism chunks, which are processed as tasks
+     * of the common ForkJoinPool, so no threads are started per call and
+     * concurrent sorts share the same workers. Every chunk builds its own
+     * histogram of the most significant byte that is not the same for every
+     * element, the histograms are turned into global prefix offsets and each
+     * chunk scatters its elements into a scratch buffer independently. The
+     * resulting buckets no longer interact, so each one is finished with a
+     * sequential LSD radix sort of the lower bytes as its own task. Arrays
+     * smaller than the parallel threshold are sorted sequentially.
+     *
+     * It should be:
+     *  stable
+     *
+     * Have a worst case running time of:
+     *  O(kn)
+     *
+     * @throws IllegalArgumentException if the array is null or parallelism is
+     * less than 1
+     * @param arr the array to be sorted
+     * @param parallelism the number of chunks to sort in parallel
+     * @return the sorted array
+     */
+    public static int[] radixSort(int[] arr, int parallelism) {
+        if (arr == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException(
+                    "parallelism must be positive!");
+        }
+        int length = arr.length;
+        int[] buffer = new int[length];
+        SortStats stats = startStats("radixSort", length);
+        if (stats != null) {
+            stats.addScratch((long) length * Integer.BYTES);
+        }
+        if (parallelism == 1 || length <= PARALLEL_THRESHOLD) {
+            radixSortHelper(arr, buffer, stats);
+            finishStats(stats);
+            return arr;
+        }
+        int chunkSize = (length + parallelism - 1) / parallelism;
+        int[] ands = new int[parallelism];
+        int[] ors = new int[parallelism];
+        int[][] counts = new int[parallelism][RADIX];
+        int[] bucketStart = new int[RADIX + 1];
+        try {
+            forEachParallel(parallelism, c -> {
+                int and = -1;
+                int or = 0;
+                for (int i = c * chunkSize; i < Math.min(length,
+                        (c + 1) * chunkSize); i++) {
+                    and &= arr[i];
+                    or |= arr[i];
+                }
+                ands[c] = and;
+                ors[c] = or;
+            });
+            int and = -1;
+            int or = 0;
+            for (int c = 0; c < parallelism; c++) {
+                and &= ands[c];
+                or |= ors[c];
+            }
+            if ((and ^ or) == 0) {
+                return arr;
+            }
+            int top = (31 - Integer.numberOfLeadingZeros(and ^ or))
+                    / RADIX_BITS;
+            int shift = top * RADIX_BITS;
+            forEachParallel(parallelism, c -> {
+                int[] count = counts[c];
+                for (int i = c * chunkSize; i < Math.min(length,
+                        (c + 1) * chunkSize); i++) {
+                    count[((arr[i] ^ Integer.MIN_VALUE) >>> shift)
+                            & RADIX_MASK]++;
+                }
+            });
+            parallelOffsets(counts, bucketStart);
+            if (stats != null) {
+                stats.addScratch((long) parallelism * RADIX * Integer.BYTES);
+                stats.addPass();
+                stats.addMoves(length);
+            }
+            forEachParallel(parallelism, c -> {
+                int[] offset = counts[c];
+                for (int i = c * chunkSize; i < Math.min(length,
+                        (c + 1) * chunkSize); i++) {
+                    int value = arr[i];
+                    buffer[offset[((value ^ Integer.MIN_VALUE) >>> shift)
+                            & RADIX_MASK]++] = value;
+                }
+            });
+            forEachParallel(RADIX, d -> {
+                int lo = bucketStart[d];
+                int hi = bucketStart[d + 1];
+                if (hi - lo <= NETWORK_THRESHOLD) {
+                    System.arraycopy(buffer, lo, arr, lo, hi - lo);
+                    NaturalSorts.networkSort(arr, lo, hi);
+                    return;
+                }
+                int[] sorted = radixPasses(buffer, arr, lo, hi, top, null);
+                if (sorted != arr) {
+                    System.arraycopy(sorted, lo, arr, lo, hi - lo);
+                }
+            });
+        } finally {
+            finishStats(stats);
+        }
+        return arr;
+    }
+
+    /**
+     * LSD radix sort of src[lo, hi) on the lowest passes bytes of the key,
+     * ping-ponging between src and dst.
+     *
+     * @param src array holding the range to sort
+     * @param dst scratch array, at least hi long
+     * @param lo first index, inclusive
+     * @param hi last index, exclusive
+     * @param passes number of low bytes to sort on
+     * @param stats where to record passes and moves, or null
+     * @return whichever of src and dst holds the sorted range
+     */
+    private static int[] radixPasses(int[] src, int[] dst, int lo, int hi,
+                                     int passes, SortStats stats) {
+        int length = hi - lo;
+        if (length < 2) {
+            return src;
+        }
+        int[] counts = new int[passes * RADIX];
+        if (stats != null) {
+            stats.addScratch((long) counts.length * Integer.BYTES);
+        }
+        for (int i = lo; i < hi; i++) {
+            int key = src[i] ^ Integer.MIN_VALUE;
+            for (int p = 0; p < passes; p++) {
+                counts[p * RADIX + ((key >>> (p * RADIX_BITS)) & RADIX_MASK)]++;
+            }
+        }
+        for (int p = 0; p < passes; p++) {
+            int base = p * RADIX;
+            if (!radixOffsets(counts, base, lo, length)) {
+                continue;
+            }
+            int shift = p * RADIX_BITS;
+            for (int i = lo; i < hi; i++) {
+                int value = src[i];
+                int digit = ((value ^ Integer.MIN_VALUE) >>> shift)
+                        & RADIX_MASK;
+                dst[counts[base + digit]++] = value;
+            }
+            int[] tmp = src;
+            src = dst;
+            dst = tmp;
+            if (stats != null) {
+                stats.addPass();
+                stats.addMoves(length);
+            }
+        }
+        return src;
+    }
+
+    /**
+     * Radix sort for longs, see {@link #radixSort(long[], long[])}.
+     *
+     * @throws IllegalArgumentException if the array is null
+     * @param arr the array to be sorted
+     * @return the sorted array
+     */
+    public static long[] radixSort(long[] arr) {
+        if (arr == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        SortStats stats = startStats("radixSort", arr.length);
+        if (stats != null) {
+            stats.addScratch((long) arr.length * Long.BYTES);
+        }
+        radixSortHelper(arr, new long[arr.length], stats);
+        finishStats(stats);
+        return arr;
+    }
+
+    /**
+     * Byte-wise LSD radix sort for longs with a reusable scratch buffer.
+     *
+     * It should be:
+     *  stable
+     *
+     * Have a worst case running time of:
+     *  O(kn)
+     *
+     * @throws IllegalArgumentException if the array or buffer is null, or if
+     * the buffer is shorter than the array
+     * @param arr the array to be sorted
+     * @param buffer scratch space at least as long as arr
+     * @return the sorted array
+     */
+    public static long[] radixSort(long[] arr, long[] buffer) {
+        checkRadixBuffer(arr, buffer, arr == null ? 0 : arr.length,
+                buffer == null ? 0 : buffer.length);
+        SortStats stats = startStats("radixSort", arr.length);
+        radixSortHelper(arr, buffer, stats);
+        finishStats(stats);
+        return arr;
+    }
+
+    /**
+     * This is the helper method for the sequential long radix sorts.
+     *
+     * @param arr the array to be sorted
+     * @param buffer scratch space at least as long as arr
+     * @param stats where to record passes and moves, or null
+     */
+    private static void radixSortHelper(long[] arr, long[] buffer,
+                                        SortStats stats) {
+        if (arr.length <= NETWORK_THRESHOLD) {
+            NaturalSorts.networkSort(arr, 0, arr.length);
+            return;
+        }
+        long[] sorted = radixPasses(arr, buffer, 0, arr.length,
+                Long.SIZE / RADIX_BITS, stats);
+        if (sorted != arr) {
+            System.arraycopy(sorted, 0, arr, 0, arr.length);
+            if (stats != null) {
+                stats.addMoves(arr.length);
+            }
+        }
+    }
+
+    /**
+     * Parallel radix sort for longs, see {@link #radixSort(int[], int)}.
+     *
+     * It should be:
+     *  stable
+     *
+     * Have a worst case running time of:
+     *  O(kn)
+     *
+     * @throws IllegalArgumentException if the array is null or parallelism is
+     * less than 1
+     * @param arr the array to be sorted
+     * @param parallelism the number of chunks to sort in parallel
+     * @return the sorted array
+     */
+    public static long[] radixSort(long[] arr, int parallelism) {
+        if (arr == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException(
+                    "parallelism must be positive!");
+        }
+        int length = arr.length;
+        long[] buffer = new long[length];
+        SortStats stats = startStats("radixSort", length);
+        if (stats != null) {
+            stats.addScratch((long) length * Long.BYTES);
+        }
+        if (parallelism == 1 || length <= PARALLEL_THRESHOLD) {
+            radixSortHelper(arr, buffer, stats);
+            finishStats(stats);
+            return arr;
+        }
+        int chunkSize = (length + parallelism - 1) / parallelism;
+        long[] ands = new long[parallelism];
+        long[] ors = new long[parallelism];
+        int[][] counts = new int[parallelism][RADIX];
+        int[] bucketStart = new int[RADIX + 1];
+        try {
+            forEachParallel(parallelism, c -> {
+                long and = -1L;
+                long or = 0L;
+                for (int i = c * chunkSize; i < Math.min(length,
+                        (c + 1) * chunkSize); i++) {
+                    and &= arr[i];
+                    or |= arr[i];
+                }
+                ands[c] = and;
+                ors[c] = or;
+            });
+            long and = -1L;
+            long or = 0L;
+            for (int c = 0; c < parallelism; c++) {
+                and &= ands[c];
+                or |= ors[c];
+            }
+            if ((and ^ or) == 0L) {
+                return arr;
+            }
+            int top = (63 - Long.numberOfLeadingZeros(and ^ or)) / RADIX_BITS;
+            int shift = top * RADIX_BITS;
+            forEachParallel(parallelism, c -> {
+                int[] count = counts[c];
+                for (int i = c * chunkSize; i < Math.min(length,
+                        (c + 1) * chunkSize); i++) {
+                    count[(int) (((arr[i] ^ Long.MIN_VALUE) >>> shift)
+                            & RADIX_MASK)]++;
+                }
+            });
+            parallelOffsets(counts, bucketStart);
+            if (stats != null) {
+                stats.addScratch((long) parallelism * RADIX * Integer.BYTES);
+                stats.addPass();
+                stats.addMoves(length);
+            }
+            forEachParallel(parallelism, c -> {
+                int[] offset = counts[c];
+                for (int i = c * chunkSize; i < Math.min(length,
+                        (c + 1) * chunkSize); i++) {
+                    long value = arr[i];
+                    buffer[offset[(int) (((value ^ Long.MIN_VALUE) >>> shift)
+                            & RADIX_MASK)]++] = value;
+                }
+            });
+            forEachParallel(RADIX, d -> {
+                int lo = bucketStart[d];
+                int hi = bucketStart[d + 1];
+                if (hi - lo <= NETWORK_THRESHOLD) {
+                    System.arraycopy(buffer, lo, arr, lo, hi - lo);
+                    NaturalSorts.networkSort(arr, lo, hi);
+                    return;
+                }
+                long[] sorted = radixPasses(buffer, arr, lo, hi, top, null);
+                if (sorted != arr) {
+                    System.arraycopy(sorted, lo, arr, lo, hi - lo);
+                }
+            });
+        } finally {
+            finishStats(stats);
+        }
+        return arr;
+    }
+
+    /**
+     * LSD radix sort of src[lo, hi) on the lowest passes bytes of the key,
+     * ping-ponging between src and dst.
+     *
+     * @param src array holding the range to sort
+     * @param dst scratch array, at least hi long
+     * @param lo first index, inclusive
+     * @param hi last index, exclusive
+     * @param passes number of low bytes to sort on
+     * @param stats where to record passes and moves, or null
+     * @return whichever of src and dst holds the sorted range
+     */
+    private static long[] radixPasses(long[] src, long[] dst, int lo, int hi,
+                                      int passes, SortStats stats) {
+        int length = hi - lo;
+        if (length < 2) {
+            return src;
+        }
+        int[] counts = new int[passes * RADIX];
+        if (stats != null) {
+            stats.addScratch((long) counts.length * Integer.BYTES);
+        }
+        for (int i = lo; i < hi; i++) {
+            long key = src[i] ^ Long.MIN_VALUE;
+            for (int p = 0; p < passes; p++) {
+                counts[p * RADIX
+                        + (int) ((key >>> (p * RADIX_BITS)) & RADIX_MASK)]++;
+            }
+        }
+        for (int p = 0; p < passes; p++) {
+            int base = p * RADIX;
+            if (!radixOffsets(counts, base, lo, length)) {
+                continue;
+            }
+            int shift = p * RADIX_BITS;
+            for (int i = lo; i < hi; i++) {
+                long value = src[i];
+                int digit = (int) (((value ^ Long.MIN_VALUE) >>> shift)
+                        & RADIX_MASK);
+                dst[counts[base + digit]++] = value;
+            }
+            long[] tmp = src;
+            src = dst;
+            dst = tmp;
+            if (stats != null) {
+                stats.addPass();
+                stats.addMoves(length);
+            }
+        }
+        return src;
+    }
+
+    /**
+     * Radix sort for floats, see {@link #radixSort(float[], float[])}.
+     *
+     * @throws IllegalArgumentException if the array is null
+     * @param arr the array to be sorted
+     * @return the sorted array
+     */
+    public static float[] radixSort(float[] arr) {
+        if (arr == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        SortStats stats = startStats("radixSort", arr.length);
+        if (stats != null) {
+            stats.addScratch((long) arr.length * Float.BYTES);
+        }
+        radixSortHelper(arr, new float[arr.length], stats);
+        finishStats(stats);
+        return arr;
+    }
+
+    /**
+     * Byte-wise LSD radix sort for floats with a reusable scratch buffer.
+     *
+     * The result is ordered the same way as {@link java.util.Arrays#sort(
+     * float[])}: -0.0f before 0.0f and NaN last.
+     *
+     * It should be:
+     *  stable
+     *
+     * Have a worst case running time of:
+     *  O(kn)
+     *
+     * @throws IllegalArgumentException if the array or buffer is null, or if
+     * the buffer is shorter than the array
+     * @param arr the array to be sorted
+     * @param buffer scratch space at least as long as arr
+     * @return the sorted array
+     */
+    public static float[] radixSort(float[] arr, float[] buffer) {
+        checkRadixBuffer(arr, buffer, arr == null ? 0 : arr.length,
+                buffer == null ? 0 : buffer.length);
+        SortStats stats = startStats("radixSort", arr.length);
+        radixSortHelper(arr, buffer, stats);
+        finishStats(stats);
+        return arr;
+    }
+
+    /**
+     * This is the helper method for the float radix sorts.
+     *
+     * @param arr the array to be sorted
+     * @param buffer scratch space at least as long as arr
+     * @param stats where to record passes and moves, or null
+     */
+    private static void radixSortHelper(float[] arr, float[] buffer,
+                                        SortStats stats) {
+        int length = arr.length;
+        if (length < 2) {
+            return;
+        }
+        int passes = Integer.SIZE / RADIX_BITS;
+        int[] counts = new int[passes * RADIX];
+        if (stats != null) {
+            stats.addScratch((long) counts.length * Integer.BYTES);
+        }
+        for (int i = 0; i < length; i++) {
+            int key = floatKey(arr[i]);
+            for (int p = 0; p < passes; p++) {
+                counts[p * RADIX + ((key >>> (p * RADIX_BITS)) & RADIX_MASK)]++;
+            }
+        }
+        float[] src = arr;
+        float[] dst = buffer;
+        for (int p = 0; p < passes; p++) {
+            int base = p * RADIX;
+            if (!radixOffsets(counts, base, 0, length)) {
+                continue;
+            }
+            int shift = p * RADIX_BITS;
+            for (int i = 0; i < length; i++) {
+                float value = src[i];
+                int digit = (floatKey(value) >>> shift) & RADIX_MASK;
+                dst[counts[base + digit]++] = value;
+            }
+            float[] tmp = src;
+            src = dst;
+            dst = tmp;
+            if (stats != null) {
+                stats.addPass();
+                stats.addMoves(length);
+            }
+        }
+        if (src != arr) {
+            System.arraycopy(src, 0, arr, 0, length);
+            if (stats != null) {
+                stats.addMoves(length);
+            }
+        }
+    }
+
+    /**
+     * Radix sort for doubles, see {@link #radixSort(double[], double[])}.
+     *
+     * @throws IllegalArgumentException if the array is null
+     * @param arr the array to be sorted
+     * @return the sorted array
+     */
+    public static double[] radixSort(double[] arr) {
+        if (arr == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        SortStats stats = startStats("radixSort", arr.length);
+        if (stats != null) {
+            stats.addScratch((long) arr.length * Double.BYTES);
+        }
+        radixSortHelper(arr, new double[arr.length], stats);
+        finishStats(stats);
+        return arr;
+    }
+
+    /**
+     * Byte-wise LSD radix sort for doubles with a reusable scratch buffer.
+     *
+     * The result is ordered the same way as {@link java.util.Arrays#sort(
+     * double[])}: -0.0 before 0.0 and NaN last.
+     *
+     * It should be:
+     *  stable
+     *
+     * Have a worst case running time of:
+     *  O(kn)
+     *
+     * @throws IllegalArgumentException if the array or buffer is null, or if
+     * the buffer is shorter than the array
+     * @param arr the array to be sorted
+     * @param buffer scratch space at least as long as arr
+     * @return the sorted array
+     */
+    public static double[] radixSort(double[] arr, double[] buffer) {
+        checkRadixBuffer(arr, buffer, arr == null ? 0 : arr.length,
+                buffer == null ? 0 : buffer.length);
+        SortStats stats = startStats("radixSort", arr.length);
+        radixSortHelper(arr, buffer, stats);
+        finishStats(stats);
+        return arr;
+    }
+
+    /**
+     * This is the helper method for the double radix sorts.
+     *
+     * @param arr the array to be sorted
+     * @param buffer scratch space at least as long as arr
+     * @param stats where to record passes and moves, or null
+     */
+    private static void radixSortHelper(double[] arr, double[] buffer,
+                                        SortStats stats) {
+        int length = arr.length;
+        if (length < 2) {
+            return;
+        }
+        int passes = Long.SIZE / RADIX_BITS;
+        int[] counts = new int[passes * RADIX];
+        if (stats != null) {
+            stats.addScratch((long) counts.length * Integer.BYTES);
+        }
+        for (int i = 0; i < length; i++) {
+            long key = doubleKey(arr[i]);
+            for (int p = 0; p < passes; p++) {
+                counts[p * RADIX
+                        + (int) ((key >>> (p * RADIX_BITS)) & RADIX_MASK)]++;
+            }
+        }
+        double[] src = arr;
+        double[] dst = buffer;
+        for (int p = 0; p < passes; p++) {
+            int base = p * RADIX;
+            if (!radixOffsets(counts, base, 0, length)) {
+                continue;
+            }
+            int shift = p * RADIX_BITS;
+            for (int i = 0; i < length; i++) {
+                double value = src[i];
+                int digit = (int) ((doubleKey(value) >>> shift) & RADIX_MASK);
+                dst[counts[base + digit]++] = value;
+            }
+            double[] tmp = src;
+            src = dst;
+            dst = tmp;
+            if (stats != null) {
+                stats.addPass();
+                stats.addMoves(length);
+            }
+        }
+        if (src != arr) {
+            System.arraycopy(src, 0, arr, 0, length);
+            if (stats != null) {
+                stats.addMoves(length);
+            }
+        }
+    }
+
+    /**
+     * Sorts arr by an int key with a radix sort.
+     *
+     * The key of every element is extracted exactly once into a primitive
+     * array, the keys are radix sorted together with their original indices
+     * and the resulting permutation is applied to arr in one pass, so no
+     * Comparator is called at all.
+     *
+     * It should be:
+     *  stable
+     *
+     * Have a worst case running time of:
+     *  O(kn)
+     *
+     * Any duplicates in the array should be in the same relative position after
+     * sorting as they were before sorting. (stable)
+     *
+     * @throws IllegalArgumentException if the array or key function is null
+     * @param <T> data type to sort
+     * @param arr the array to be sorted
+     * @param key extracts the sort key of an element
+     */
+    public static <T> void sortByKey(T[] arr, ToIntFunction<T> key) {
+        if (arr == null || key == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        SortStats stats = startStats("sortByKey", arr.length);
+        if (stats != null) {
+            // keys, packed keys and their buffer, permutation, copy of arr
+            stats.addScratch((long) arr.length * (Integer.BYTES
+                    + 2 * Long.BYTES + Integer.BYTES
+                    + SortStats.REFERENCE_BYTES));
+        }
+        int[] keys = new int[arr.length];
+        for (int i = 0; i < arr.length; i++) {
+            keys[i] = key.applyAsInt(arr[i]);
+        }
+        applyPermutation(arr, radixArgsort(keys));
+        finishStats(stats);
+    }
+
+    /**
+     * Sorts arr by a long key with a radix sort, see
+     * {@link #sortByKey(Object[], ToIntFunction)}.
+     *
+     * It should be:
+     *  stable
+     *
+     * Have a worst case running time of:
+     *  O(kn)
+     *
+     * @throws IllegalArgumentException if the array or key function is null
+     * @param <T> data type to sort
+     * @param arr the array to be sorted
+     * @param key extracts the sort key of an element
+     */
+    public static <T> void sortByLongKey(T[] arr, ToLongFunction<T> key) {
+        if (arr == null || key == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        SortStats stats = startStats("sortByLongKey", arr.length);
+        if (stats != null) {
+            // keys and their buffer, permutation and its buffer, copy of arr
+            stats.addScratch((long) arr.length * (2 * Long.BYTES
+                    + 2 * Integer.BYTES + SortStats.REFERENCE_BYTES));
+        }
+        long[] keys = new long[arr.length];
+        for (int i = 0; i < arr.length; i++) {
+            keys[i] = key.applyAsLong(arr[i]);
+        }
+        applyPermutation(arr, radixArgsort(keys));
+        finishStats(stats);
+    }
+
+    /**
+     * Sorts arr by a derived key that is expensive to compute, calling key
+     * exactly once per element.
+     *
+     * The keys are extracted into an array that runs parallel to an array
+     * of the original indices, the two are merge sorted together so every
+     * comparison reads its keys from one compact array instead of chasing
+     * the elements, and the resulting permutation is then applied to arr in
+     * one pass. A plain {@link #mergeSort(Object[], Comparator)} with a
+     * comparator that derives the keys itself computes about 2n log n keys
+     * instead of n. With a {@link SortListener} set, the time spent in key
+     * and in comparator is reported separately through
+     * {@link SortStats#getKeyNanos()} and
+     * {@link SortStats#getComparatorNanos()}.
+     *
+     * It should be:
+     *  stable
+     *
+     * Have a worst case running time of:
+     *  O(n log n) comparisons and n key extractions
+     *
+     * Any duplicates in the array should be in the same relative position after
+     * sorting as they were before sorting. (stable)
+     *
+     * @throws IllegalArgumentException if the array, key function or
+     * comparator is null
+     * @param <T> data type to sort
+     * @param <K> type of the sort keys
+     * @param arr the array to be sorted
+     * @param key derives the sort key of an element
+     * @param comparator the Comparator used to compare the keys
+     */
+    public static <T, K> void sortByCachedKey(T[] arr, Function<T, K> key,
+                                              Comparator<K> comparator) {
+        if (arr == null || key == null || comparator == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        int n = arr.length;
+        SortStats stats = startStats("sortByCachedKey", n);
+        long start = stats == null ? 0 : System.nanoTime();
+        K[] keys = (K[]) new Object[n];
+        int[] indices = new int[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = key.apply(arr[i]);
+            indices[i] = i;
+        }
+        if (stats != null) {
+            long now = System.nanoTime();
+            stats.addKeyNanos(now - start);
+            start = now;
+            // keys and indices with their buffers, copy of arr
+            stats.addScratch((long) n * (3 * SortStats.REFERENCE_BYTES
+                    + 2 * Integer.BYTES));
+        }
+        keyedMergeSort(keys.clone(), indices.clone(), keys, indices, 0, n,
+                counted(comparator, stats));
+        if (stats != null) {
+            stats.addComparatorNanos(System.nanoTime() - start);
+            stats.addMoves(n);
+        }
+        applyPermutation(arr, indices);
+        finishStats(stats);
+    }
+
+    /**
+     * Sorts the (key, index) pairs in [lo, hi) into keys and indices, using
+     * srcKeys and srcIndices as scratch, like
+     * {@link #mergeSortInto(Object[], Object[], int, int, Comparator)} but
+     * moving every index together with its key. Both pairs of arrays must
+     * hold the same pairs in [lo, hi) when called.
+     *
+     * @param <K> type of the keys
+     * @param srcKeys scratch copy of the keys
+     * @param srcIndices scratch copy of the indices
+     * @param keys keys that are sorted afterwards
+     * @param indices indices that follow their keys
+     * @param lo first index, inclusive
+     * @param hi last index, exclusive
+     * @param comparator the comparator
+     */
+    private static <K> void keyedMergeSort(K[] srcKeys, int[] srcIndices,
+                                           K[] keys, int[] indices, int lo,
+                                           int hi, Comparator<K> comparator) {
+        if (hi - lo <= INSERTION_THRESHOLD) {
+            for (int i = lo + 1; i < hi; i++) {
+                K k = keys[i];
+                int index = indices[i];
+                int j = i - 1;
+                while (j >= lo && comparator.compare(keys[j], k) > 0) {
+                    keys[j + 1] = keys[j];
+                    indices[j + 1] = indices[j];
+                    j--;
+                }
+                keys[j + 1] = k;
+                indices[j + 1] = index;
+            }
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        keyedMergeSort(keys, indices, srcKeys, srcIndices, lo, mid,
+                comparator);
+        keyedMergeSort(keys, indices, srcKeys, srcIndices, mid, hi,
+                comparator);
+        if (comparator.compare(srcKeys[mid - 1], srcKeys[mid]) <= 0) {
+            System.arraycopy(srcKeys, lo, keys, lo, hi - lo);
+            System.arraycopy(srcIndices, lo, indices, lo, hi - lo);
+            return;
+        }
+        int i = lo;
+        int j = mid;
+        for (int out = lo; out < hi; out++) {
+            if (j == hi || (i < mid
+                    && comparator.compare(srcKeys[j], srcKeys[i]) >= 0)) {
+                keys[out] = srcKeys[i];
+                indices[out] = srcIndices[i++];
+            } else {
+                keys[out] = srcKeys[j];
+                indices[out] = srcIndices[j++];
+            }
+        }
+    }
+
+    /**
+     * Sorts arr and removes duplicates in the same pass, moving the distinct
+     * elements to the front.
+     *
+     * Both halves are merge sorted as in
+     * {@link #mergeSort(Object[], Comparator)}, and the final merge back
+     * into arr drops every element equal to the last one it wrote, so no
+     * separate scan over the sorted array is needed. Of every group of equal
+     * elements the first in the original order is kept. The slots of arr
+     * from the returned length on are set to null.
+     *
+     * Have a worst case running time of:
+     *  O(n log n)
+     *
+     * @throws IllegalArgumentException if the array or comparator is null
+     * @param <T> data type to sort
+     * @param arr the array to be sorted
+     * @param comparator the Comparator used to compare the data in arr
+     * @return the number of distinct elements, which are now in
+     * arr[0, length) in sorted order
+     */
+    public static <T> int sortDistinct(T[] arr, Comparator<T> comparator) {
+        if (arr == null || comparator == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        return distinctHelper(arr, comparator, null, "sortDistinct");
+    }
+
+    /**
+     * Sorts arr, removes duplicates and counts them in the same pass, see
+     * {@link #sortDistinct(Object[], Comparator)}.
+     *
+     * Have a worst case running time of:
+     *  O(n log n)
+     *
+     * @throws IllegalArgumentException if the array, comparator or counts is
+     * null, or if counts is shorter than the array
+     * @param <T> data type to sort
+     * @param arr the array to be sorted
+     * @param comparator the Comparator used to compare the data in arr
+     * @param counts filled with the number of occurrences of arr[i] at
+     * counts[i] for every i below the returned length, the rest is
+     * overwritten
+     * @return the number of distinct elements
+     */
+    public static <T> int sortCount(T[] arr, Comparator<T> comparator,
+                                    int[] counts) {
+        if (arr == null || comparator == null || counts == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        if (counts.length < arr.length) {
+            throw new IllegalArgumentException("buffer too small!");
+        }
+        return distinctHelper(arr, comparator, counts, "sortCount");
+    }
+
+    /**
+     * Sorts ints and removes duplicates in the final pass of a radix sort.
+     *
+     * The lower bytes are sorted as in {@link #radixSort(int[])}. The pass
+     * on the most significant byte then drops every value equal to the last
+     * one written to its bucket, which works because the values arrive in
+     * every bucket in sorted order, and the shortened buckets are moved
+     * together with one block copy each. The slots of arr from the returned
+     * length on are left with unspecified values.
+     *
+     * Have a worst case running time of:
+     *  O(kn)
+     *
+     * @throws IllegalArgumentException if the array is null
+     * @param arr the array to be sorted
+     * @return the number of distinct values, which are now in arr[0, length)
+     * in ascending order
+     */
+    public static int sortDistinct(int[] arr) {
+        if (arr == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        SortStats stats = startStats("sortDistinct", arr.length);
+        int distinct = radixDistinct(arr, null, stats);
+        finishStats(stats);
+        return distinct;
+    }
+
+    /**
+     * Sorts ints, removes duplicates and counts them in the final pass of a
+     * radix sort, see {@link #sortDistinct(int[])}.
+     *
+     * Have a worst case running time of:
+     *  O(kn)
+     *
+     * @throws IllegalArgumentException if the array or counts is null, or if
+     * counts is shorter than the array
+     * @param arr the array to be sorted
+     * @param counts filled with the number of occurrences of arr[i] at
+     * counts[i] for every i below the returned length, the rest is
+     * overwritten
+     * @return the number of distinct values
+     */
+    public static int sortCount(int[] arr, int[] counts) {
+        checkRadixBuffer(arr, counts, arr == null ? 0 : arr.length,
+                counts == null ? 0 : counts.length);
+        SortStats stats = startStats("sortCount", arr.length);
+        int distinct = radixDistinct(arr, counts, stats);
+        finishStats(stats);
+        return distinct;
+    }
+
+    /**
+     * Sorts longs and removes duplicates in the final pass of a radix sort,
+     * see {@link #sortDistinct(int[])}.
+     *
+     * Have a worst case running time of:
+     *  O(kn)
+     *
+     * @throws IllegalArgumentException if the array is null
+     * @param arr the array to be sorted
+     * @return the number of distinct values, which are now in arr[0, length)
+     * in ascending order
+     */
+    public static int sortDistinct(long[] arr) {
+        if (arr == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        SortStats stats = startStats("sortDistinct", arr.length);
+        int distinct = radixDistinct(arr, null, stats);
+        finishStats(stats);
+        return distinct;
+    }
+
+    /**
+     * Sorts longs, removes duplicates and counts them in the final pass of a
+     * radix sort, see {@link #sortDistinct(int[])}.
+     *
+     * Have a worst case running time of:
+     *  O(kn)
+     *
+     * @throws IllegalArgumentException if the array or counts is null, or if
+     * counts is shorter than the array
+     * @param arr the array to be sorted
+     * @param counts filled with the number of occurrences of arr[i] at
+     * counts[i] for every i below the returned length, the rest is
+     * overwritten
+     * @return the number of distinct values
+     */
+    public static int sortCount(long[] arr, int[] counts) {
+        checkRadixBuffer(arr, counts, arr == null ? 0 : arr.length,
+                counts == null ? 0 : counts.length);
+        SortStats stats = startStats("sortCount", arr.length);
+        int distinct = radixDistinct(arr, counts, stats);
+        finishStats(stats);
+        return distinct;
+    }
+
+    /**
+     * This is the helper method for the comparison based sortDistinct and
+     * sortCount.
+     *
+     * @param <T> data type to sort
+     * @param arr the array to be sorted
+     * @param comparator the comparator
+     * @param counts where to count occurrences, or null
+     * @param name the name reported to the listener
+     * @return the number of distinct elements
+     */
+    private static <T> int distinctHelper(T[] arr, Comparator<T> comparator,
+                                          int[] counts, String name) {
+        int length = arr.length;
+        SortStats stats = startStats(name, length);
+        Comparator<T> c = counted(comparator, stats);
+        T[] src = arr.clone();
+        int mid = length >>> 1;
+        mergeSortInto(arr, src, 0, mid, c);
+        mergeSortInto(arr, src, mid, length, c);
+        int distinct = 0;
+        int i = 0;
+        int j = mid;
+        while (i < mid || j < length) {
+            T next;
+            if (j == length || (i < mid && c.compare(src[j], src[i]) >= 0)) {
+                next = src[i++];
+            } else {
+                next = src[j++];
+            }
+            if (distinct > 0 && c.compare(arr[distinct - 1], next) == 0) {
+                if (counts != null) {
+                    counts[distinct - 1]++;
+                }
+            } else {
+                if (counts != null) {
+                    counts[distinct] = 1;
+                }
+                arr[distinct++] = next;
+            }
+        }
+        Arrays.fill(arr, distinct, length, null);
+        if (stats != null) {
+            stats.addMoves(length + distinct);
+            stats.addScratch((long) length * SortStats.REFERENCE_BYTES);
+        }
+        finishStats(stats);
+        return distinct;
+    }
+
+    /**
+     * LSD radix sort of arr that drops duplicates during the pass on the
+     * most significant byte.
+     *
+     * @param arr the array to be sorted
+     * @param counts where to count occurrences, or null
+     * @param stats where to record passes and moves, or null
+     * @return the number of distinct values
+     */
+    private static int radixDistinct(int[] arr, int[] counts,
+                                     SortStats stats) {
+        int length = arr.length;
+        int passes = Integer.SIZE / RADIX_BITS;
+        int[] histograms = new int[passes * RADIX];
+        int[] buffer = new int[length];
+        if (stats != null) {
+            stats.addScratch((long) (length + histograms.length + 2 * RADIX)
+                    * Integer.BYTES);
+        }
+        for (int value : arr) {
+            int key = value ^ Integer.MIN_VALUE;
+            for (int p = 0; p < passes; p++) {
+                histograms[p * RADIX
+                        + ((key >>> (p * RADIX_BITS)) & RADIX_MASK)]++;
+            }
+        }
+        int[] src = arr;
+        int[] dst = buffer;
+        for (int p = 0; p < passes - 1; p++) {
+            int base = p * RADIX;
+            if (!radixOffsets(histograms, base, 0, length)) {
+                continue;
+            }
+            int shift = p * RADIX_BITS;
+            for (int i = 0; i < length; i++) {
+                int value = src[i];
+                dst[histograms[base + (((value ^ Integer.MIN_VALUE)
+                        >>> shift) & RADIX_MASK)]++] = value;
+            }
+            int[] tmp = src;
+            src = dst;
+            dst = tmp;
+            if (stats != null) {
+                stats.addPass();
+                stats.addMoves(length);
+            }
+        }
+        int base = (passes - 1) * RADIX;
+        int shift = (passes - 1) * RADIX_BITS;
+        int[] start = new int[RADIX];
+        int[] next = new int[RADIX];
+        int sum = 0;
+        for (int d = 0; d < RADIX; d++) {
+            start[d] = sum;
+            next[d] = sum;
+            sum += histograms[base + d];
+        }
+        for (int i = 0; i < length; i++) {
+            int value = src[i];
+            int d = ((value ^ Integer.MIN_VALUE) >>> shift) & RADIX_MASK;
+            int at = next[d];
+            if (at > start[d] && dst[at - 1] == value) {
+                if (counts != null) {
+                    counts[at - 1]++;
+                }
+            } else {
+                dst[at] = value;
+                if (counts != null) {
+                    counts[at] = 1;
+                }
+                next[d] = at + 1;
+            }
+        }
+        int distinct = compactBuckets(dst, arr, counts, start, next);
+        if (stats != null) {
+            stats.addPass();
+            stats.addMoves(length + distinct);
+        }
+        return distinct;
+    }
+
+    /**
+     * LSD radix sort of arr that drops duplicates during the pass on the
+     * most significant byte, see {@link #radixDistinct(int[], int[],
+     * SortStats)}.
+     *
+     * @param arr the array to be sorted
+     * @param counts where to count occurrences, or null
+     * @param stats where to record passes and moves, or null
+     * @return the number of distinct values
+     */
+    private static int radixDistinct(long[] arr, int[] counts,
+                                     SortStats stats) {
+        int length = arr.length;
+        int passes = Long.SIZE / RADIX_BITS;
+        int[] histograms = new int[passes * RADIX];
+        long[] buffer = new long[length];
+        if (stats != null) {
+            stats.addScratch((long) length * Long.BYTES
+                    + (long) (histograms.length + 2 * RADIX) * Integer.BYTES);
+        }
+        for (long value : arr) {
+            long key = value ^ Long.MIN_VALUE;
+            for (int p = 0; p < passes; p++) {
+                histograms[p * RADIX
+                        + (int) ((key >>> (p * RADIX_BITS)) & RADIX_MASK)]++;
+            }
+        }
+        long[] src = arr;
+        long[] dst = buffer;
+        for (int p = 0; p < passes - 1; p++) {
+            int base = p * RADIX;
+            if (!radixOffsets(histograms, base, 0, length)) {
+                continue;
+            }
+            int shift = p * RADIX_BITS;
+            for (int i = 0; i < length; i++) {
+                long value = src[i];
+                dst[histograms[base + (int) (((value ^ Long.MIN_VALUE)
+                        >>> shift) & RADIX_MASK)]++] = value;
+            }
+            long[] tmp = src;
+            src = dst;
+            dst = tmp;
+            if (stats != null) {
+                stats.addPass();
+                stats.addMoves(length);
+            }
+        }
+        int base = (passes - 1) * RADIX;
+        int shift = (passes - 1) * RADIX_BITS;
+        int[] start = new int[RADIX];
+        int[] next = new int[RADIX];
+        int sum = 0;
+        for (int d = 0; d < RADIX; d++) {
+            start[d] = sum;
+            next[d] = sum;
+            sum += histograms[base + d];
+        }
+        for (int i = 0; i < length; i++) {
+            long value = src[i];
+            int d = (int) (((value ^ Long.MIN_VALUE) >>> shift) & RADIX_MASK);
+            int at = next[d];
+            if (at > start[d] && dst[at - 1] == value) {
+                if (counts != null) {
+                    counts[at - 1]++;
+                }
+            } else {
+                dst[at] = value;
+                if (counts != null) {
+                    counts[at] = 1;
+                }
+                next[d] = at + 1;
+            }
+        }
+        int distinct = compactBuckets(dst, arr, counts, start, next);
+        if (stats != null) {
+            stats.addPass();
+            stats.addMoves(length + distinct);
+        }
+        return distinct;
+    }
+
+    /**
+     * Closes the gaps that dropped duplicates left at the end of every
+     * bucket of the final radixDistinct pass, moving the buckets from src to
+     * the front of dst and their counts along with them.
+     *
+     * @param src array holding the shortened buckets
+     * @param dst array to move them to, may be src
+     * @param counts the counts, parallel to src, or null
+     * @param start the first index of every bucket
+     * @param end the index after the last kept value of every bucket
+     * @return the number of values kept
+     */
+    private static int compactBuckets(Object src, Object dst, int[] counts,
+                                      int[] start, int[] end) {
+        int kept = 0;
+        for (int d = 0; d < RADIX; d++) {
+            int size = end[d] - start[d];
+            if (size == 0) {
+                continue;
+            }
+            if (src != dst || start[d] != kept) {
+                System.arraycopy(src, start[d], dst, kept, size);
+            }
+            if (counts != null && start[d] != kept) {
+                System.arraycopy(counts, start[d], counts, kept, size);
+            }
+            kept += size;
+        }
+        return kept;
+    }
+
+    /**
+     * Computes the stable sorting permutation of keys with a radix sort.
+     * Every key is packed above its index in a long, so sorting the low four
+     * bytes sorts the keys and carries the indices along.
+     *
+     * @param keys the keys, left unchanged
+     * @return perm such that keys[perm[0]], keys[perm[1]], ... is sorted
+     */
+    private static int[] radixArgsort(int[] keys) {
+        int length = keys.length;
+        long[] packed = new long[length];
+        for (int i = 0; i < length; i++) {
+            packed[i] = ((long) i << 32)
+                    | ((keys[i] ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+        }
+        long[] sorted = radixPasses(packed, new long[length], 0, length,
+                Integer.SIZE / RADIX_BITS, null);
+        int[] perm = new int[length];
+        for (int i = 0; i < length; i++) {
+            perm[i] = (int) (sorted[i] >>> 32);
+        }
+        return perm;
+    }
+
+    /**
+     * Computes the stable sorting permutation of keys with a radix sort that
+     * moves every key together with its index.
+     *
+     * @param keys the keys, sorted in place as a side effect
+     * @return perm such that the original keys[perm[0]], keys[perm[1]], ...
+     * are sorted
+     */
+    private static int[] radixArgsort(long[] keys) {
+        int length = keys.length;
+        int[] perm = new int[length];
+        for (int i = 0; i < length; i++) {
+            perm[i] = i;
+        }
+        int passes = Long.SIZE / RADIX_BITS;
+        int[] counts = new int[passes * RADIX];
+        for (int i = 0; i < length; i++) {
+            long key = keys[i] ^ Long.MIN_VALUE;
+            for (int p = 0; p < passes; p++) {
+                counts[p * RADIX
+                        + (int) ((key >>> (p * RADIX_BITS)) & RADIX_MASK)]++;
+            }
+        }
+        long[] srcKeys = keys;
+        long[] dstKeys = new long[length];
+        int[] src = perm;
+        int[] dst = new int[length];
+        for (int p = 0; p < passes; p++) {
+            int base = p * RADIX;
+            if (!radixOffsets(counts, base, 0, length)) {
+                continue;
+            }
+            int shift = p * RADIX_BITS;
+            for (int i = 0; i < length; i++) {
+                long value = srcKeys[i];
+                int at = counts[base + (int) (((value ^ Long.MIN_VALUE)
+                        >>> shift) & RADIX_MASK)]++;
+                dstKeys[at] = value;
+                dst[at] = src[i];
+            }
+            long[] tmpKeys = srcKeys;
+            srcKeys = dstKeys;
+            dstKeys = tmpKeys;
+            int[] tmp = src;
+            src = dst;
+            dst = tmp;
+        }
+        if (srcKeys != keys) {
+            System.arraycopy(srcKeys, 0, keys, 0, length);
+        }
+        return src;
+    }
+
+    /**
+     * Rearranges arr so that arr[i] becomes the old arr[perm[i]].
+     *
+     * @param <T> data type in the array
+     * @param arr the array to rearrange
+     * @param perm a permutation of the indices of arr
+     */
+    private static <T> void applyPermutation(T[] arr, int[] perm) {
+        T[] old = arr.clone();
+        for (int i = 0; i < arr.length; i++) {
+            arr[i] = old[perm[i]];
+        }
+    }
+
+    /**
+     * MSD radix sort for strings and other character sequences, in the
+     * order of {@link String#compareTo(String)}.
+     *
+     * The keys are distributed on one byte of one character at a time,
+     * starting from the first, and every bucket is then sorted on the next
+     * byte only, so a prefix shared by a bucket is never read again. Buckets
+     * of at most 16 keys are finished with an insertion sort that also
+     * starts comparing after the shared prefix. See {@link StringSorts}.
+     *
+     * It should be:
+     *  stable
+     *
+     * Have a worst case running time of:
+     *  O(n + total length of the distinguishing prefixes)
+     *
+     * Any duplicates in the array should be in the same relative position after
+     * sorting as they were before sorting. (stable)
+     *
+     * @throws IllegalArgumentException if the array is null
+     * @param arr the array to be sorted, without null elements
+     */
+    public static void msdRadixSort(CharSequence[] arr) {
+        if (arr == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        SortStats stats = startStats("msdRadixSort", arr.length);
+        if (stats != null) {
+            stats.addScratch((long) arr.length * SortStats.REFERENCE_BYTES);
+        }
+        StringSorts.msdRadixSort(arr, new CharSequence[arr.length], stats);
+        finishStats(stats);
+    }
+
+    /**
+     * Three-way radix quick sort (multikey quick sort) for strings and other
+     * character sequences, in the order of {@link String#compareTo(String)}.
+     *
+     * Each range is partitioned into keys whose character at the current
+     * position is less than, equal to or greater than that of a random
+     * pivot key, and only the equal part moves on to the next position, so
+     * a shared prefix is read once per partition instead of once per
+     * comparison. Ranges of at most 16 keys are finished with insertion
+     * sort. See {@link StringSorts}.
+     *
+     * It should be:
+     *  in-place
+     *
+     * Have an expected running time of:
+     *  O(n log n + total length of the distinguishing prefixes)
+     *
+     * @throws IllegalArgumentException if the array or rand is null
+     * @param arr the array to be sorted, without null elements
+     * @param rand the Random object used to select pivots
+     */
+    public static void radixQuickSort(CharSequence[] arr, Random rand) {
+        if (arr == null || rand == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        SortStats stats = startStats("radixQuickSort", arr.length);
+        StringSorts.radixQuickSort(arr, rand, 0, arr.length, 0, 1, stats);
+        finishStats(stats);
+    }
+
+    /**
+     * In-place MSD radix sort of the fixed-width records between the
+     * position and the limit of a buffer, on the unsigned bytes of a key
+     * stored inside every record.
+     *
+     * The records are distributed on one key byte at a time, starting from
+     * the first, by swapping them straight into their buckets (American flag
+     * sort), and buckets of at most 16 records are finished with an
+     * insertion sort. Nothing but the records' keys is read and no record is
+     * ever copied out of the buffer, so direct and mapped buffers are sorted
+     * without moving their data onto the heap. The position and limit of the
+     * buffer are left unchanged. See {@link RecordSorts}.
+     *
+     * It should be:
+     *  in-place
+     *  unstable
+     *
+     * Have a worst case running time of:
+     *  O(n * keyLength)
+     *
+     * @throws IllegalArgumentException if the buffer is null or read-only,
+     * if the key does not lie inside the record or if the buffer does not
+     * hold a whole number of records
+     * @param records the buffer holding the records
+     * @param recordSize width of every record in bytes
+     * @param keyOffset offset of the key within a record
+     * @param keyLength key length in bytes
+     */
+    public static void radixSortRecords(ByteBuffer records, int recordSize,
+                                        int keyOffset, int keyLength) {
+        int n = recordCount(records, recordSize, keyOffset, keyLength);
+        SortStats stats = startStats("radixSortRecords", n);
+        RecordSorts.radixSort(records, records.position(), n, recordSize,
+                keyOffset, keyLength, stats);
+        finishStats(stats);
+    }
+
+    /**
+     * Quick sort of the fixed-width records between the position and the
+     * limit of a buffer, on the unsigned bytes of a key stored inside every
+     * record.
+     *
+     * The first eight bytes of every key are cached in a long[] up front,
+     * so most comparisons never touch the buffer; only keys with equal
+     * prefixes are compared on their remaining bytes. The record indices are
+     * sorted by {@link #unstableArgsort(int[], IntComparator, Random)}'s
+     * quick sort and the records are then moved in place into their final
+     * slots once, by following the cycles of the permutation with swaps. No
+     * record is ever copied out of the buffer. The position and limit of the
+     * buffer are left unchanged.
+     *
+     * It should be:
+     *  in-place for the records
+     *  unstable
+     *
+     * Have a worst case running time of:
+     *  O(n log n) comparisons
+     *
+     * @throws IllegalArgumentException if the buffer or rand is null, if the
+     * buffer is read-only, if the key does not lie inside the record or if
+     * the buffer does not hold a whole number of records
+     * @param records the buffer holding the records
+     * @param recordSize width of every record in bytes
+     * @param keyOffset offset of the key within a record
+     * @param keyLength key length in bytes
+     * @param rand the Random object used to select pivots
+     */
+    public static void quickSortRecords(ByteBuffer records, int recordSize,
+                                        int keyOffset, int keyLength,
+                                        Random rand) {
+        if (rand == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        int n = recordCount(records, recordSize, keyOffset, keyLength);
+        SortStats stats = startStats("quickSortRecords", n);
+        if (stats != null) {
+            stats.addScratch((long) n * Long.BYTES);
+        }
+        int keys = records.position() + keyOffset;
+        long[] prefixes = new long[n];
+        for (int i = 0; i < n; i++) {
+            prefixes[i] = RecordSorts.prefix(records, keys + i * recordSize,
+                    keyLength);
+        }
+        IntComparator byIndex = (i, j) -> {
+            int cmp = Long.compareUnsigned(prefixes[i], prefixes[j]);
+            if (cmp != 0 || keyLength <= Long.BYTES) {
+                return cmp;
+            }
+            return RecordSorts.compareKeys(records, keys + i * recordSize,
+                    keys + j * recordSize, Long.BYTES, keyLength);
+        };
+        int[] perm = sortIndices(n, countedInt(byIndex, stats), rand, stats);
+        long swaps = RecordSorts.permute(records, records.position(),
+                recordSize, perm);
+        if (stats != null) {
+            stats.addMoves(2 * swaps);
+        }
+        finishStats(stats);
+    }
+
+    /**
+     * Stable radix sort of the fixed-width records between the position and
+     * the limit of a buffer, by a long key extracted from every record.
+     *
+     * Every key is extracted once into a long[], the keys are radix sorted
+     * together with their record indices, see {@link #argsort(long[])}, and
+     * the records are then moved in place into their final slots once, by
+     * following the cycles of the permutation with swaps. No record is ever
+     * copied out of the buffer. The position and limit of the buffer are
+     * left unchanged.
+     *
+     * It should be:
+     *  in-place for the records
+     *  stable
      *
      * Have a worst case running time of:
      *  O(kn)
      *
-     * And a best case running time of:
+     * @throws IllegalArgumentException if the buffer or key is null, if the
+     * buffer is read-only or if it does not hold a whole number of records
+     * @param records the buffer holding the records
+     * @param recordSize width of every record in bytes
+     * @param key extracts the sort key of a record
+     */
+    public static void sortRecordsByKey(ByteBuffer records, int recordSize,
+                                        RecordKey key) {
+        if (key == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        int n = recordCount(records, recordSize, 0, 0);
+        SortStats stats = startStats("sortRecordsByKey", n);
+        if (stats != null) {
+            // keys and their buffer, permutation and its buffer
+            stats.addScratch((long) n * (2 * Long.BYTES + 2 * Integer.BYTES));
+        }
+        int base = records.position();
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = key.key(records, base + i * recordSize);
+        }
+        long swaps = RecordSorts.permute(records, base, recordSize,
+                radixArgsort(keys));
+        if (stats != null) {
+            stats.addMoves(2 * swaps);
+        }
+        finishStats(stats);
+    }
+
+    /**
+     * Validates the arguments shared by the record sorts.
+     *
+     * @throws IllegalArgumentException if the buffer is null or read-only,
+     * if the key does not lie inside the record or if the buffer does not
+     * hold a whole number of records
+     * @param records the buffer holding the records
+     * @param recordSize width of every record in bytes
+     * @param keyOffset offset of the key within a record
+     * @param keyLength key length in bytes
+     * @return the number of records
+     */
+    private static int recordCount(ByteBuffer records, int recordSize,
+                                   int keyOffset, int keyLength) {
+        if (records == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        if (records.isReadOnly()) {
+            throw new IllegalArgumentException("buffer is read-only!");
+        }
+        if (recordSize < 1 || keyOffset < 0 || keyLength < 0
+                || keyOffset > recordSize - keyLength) {
+            throw new IllegalArgumentException("illegal record layout!");
+        }
+        if (records.remaining() % recordSize != 0) {
+            throw new IllegalArgumentException(
+                    "buffer is not a whole number of records!");
+        }
+        return records.remaining() / recordSize;
+    }
+
+    /**
+     * Stable argsort: computes the permutation that sorts arr, without
+     * moving anything in arr.
+     *
+     * The indices are merge sorted by the elements they point to, see
+     * {@link #mergeSort(int[], IntComparator)}, so equal elements keep
+     * their index order. Apply the result to arr and any companion arrays
+     * with {@link #gather(int[], Object...)}.
+     *
+     * Have a worst case running time of:
+     *  O(n log n)
+     *
+     * @throws IllegalArgumentException if the array or comparator is null
+     * @param <T> data type to sort
+     * @param arr the array to sort, left unchanged
+     * @param comparator the Comparator used to compare the data in arr
+     * @return perm such that arr[perm[0]], arr[perm[1]], ... is sorted
+     */
+    public static <T> int[] argsort(T[] arr, Comparator<T> comparator) {
+        if (arr == null || comparator == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        SortStats stats = startStats("argsort", arr.length);
+        Comparator<T> counting = counted(comparator, stats);
+        int[] perm = sortIndices(arr.length,
+                (i, j) -> counting.compare(arr[i], arr[j]), null, stats);
+        finishStats(stats);
+        return perm;
+    }
+
+    /**
+     * Unstable argsort: computes the permutation that sorts arr with the
+     * three-way introsort of
+     * {@link #quickSort(Object[], Comparator, Random)}, without moving
+     * anything in arr. Equal elements end up in an unspecified index order.
+     *
+     * Have a worst case running time of:
+     *  O(n log n)
+     *
+     * @throws IllegalArgumentException if the array or comparator or rand is
+     * null
+     * @param <T> data type to sort
+     * @param arr the array to sort, left unchanged
+     * @param comparator the Comparator used to compare the data in arr
+     * @param rand the Random object used to select pivots
+     * @return perm such that arr[perm[0]], arr[perm[1]], ... is sorted
+     */
+    public static <T> int[] unstableArgsort(T[] arr, Comparator<T> comparator,
+                                            Random rand) {
+        if (arr == null || comparator == null || rand == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        SortStats stats = startStats("unstableArgsort", arr.length);
+        Comparator<T> counting = counted(comparator, stats);
+        int[] perm = sortIndices(arr.length,
+                (i, j) -> counting.compare(arr[i], arr[j]), rand, stats);
+        finishStats(stats);
+        return perm;
+    }
+
+    /**
+     * Stable argsort of int keys in ascending order, computed with the radix
+     * sort behind {@link #sortByKey(Object[], ToIntFunction)}.
+     *
+     * Have a worst case running time of:
      *  O(kn)
      *
-     * Any duplicates in the array should be in the same relative position after
-     * sorting as they were before sorting. (stable)
+     * @throws IllegalArgumentException if keys is null
+     * @param keys the keys, left unchanged
+     * @return perm such that keys[perm[0]], keys[perm[1]], ... is sorted
+     */
+    public static int[] argsort(int[] keys) {
+        if (keys == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        SortStats stats = startStats("argsort", keys.length);
+        int[] perm = radixArgsort(keys);
+        finishStats(stats);
+        return perm;
+    }
+
+    /**
+     * Stable argsort of long keys in ascending order, computed with a radix
+     * sort.
      *
-     * DO NOT USE {@code Math.pow()} in your sort. Instead, if you need to, use
-     * the provided {@code pow()} method below.
+     * Have a worst case running time of:
+     *  O(kn)
      *
-     * You may use an ArrayList or LinkedList if you wish, but it may only be
-     * used inside radix sort and any radix sort helpers. Do NOT use these
-     * classes with other sorts.
+     * @throws IllegalArgumentException if keys is null
+     * @param keys the keys, left unchanged
+     * @return perm such that keys[perm[0]], keys[perm[1]], ... is sorted
+     */
+    public static int[] argsort(long[] keys) {
+        if (keys == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        SortStats stats = startStats("argsort", keys.length);
+        int[] perm = radixArgsort(keys.clone());
+        finishStats(stats);
+        return perm;
+    }
+
+    /**
+     * Stable argsort of double keys, computed with a radix sort. Keys are
+     * ordered the same way as {@link java.util.Arrays#sort(double[])}:
+     * -0.0 before 0.0 and NaN last.
      *
-     * @throws IllegalArgumentException if the array is null
-     * @param arr the array to be sorted
-     * @return the sorted array
+     * Have a worst case running time of:
+     *  O(kn)
+     *
+     * @throws IllegalArgumentException if keys is null
+     * @param keys the keys, left unchanged
+     * @return perm such that keys[perm[0]], keys[perm[1]], ... is sorted
      */
-    public static int[] radixSort(int[] arr) {
-        if (arr == null) {
+    public static int[] argsort(double[] keys) {
+        if (keys == null) {
             throw new IllegalArgumentException("parameter null!");
         }
-        int max = Math.abs(arr[0]);
-        int exp = 1;
-        int length = arr.length;
-        for (int i = 1; i < length; i++) {
-            if (arr[i] == -2147483648) {
-                max = 2147483647;
-            } else if (Math.abs(arr[i]) > max) {
-                max = Math.abs(arr[i]);
-            }
-        }
-        while (Math.abs(max / exp) > 0) {
-            Queue<Integer>[] bucket = new LinkedList[10];
-            for (int j = 0; j < length; j++) {
-                if (arr[j] / exp != 0) {
-                    int index = Math.abs((arr[j] / exp) % 10);
-                    if (bucket[index] == null) {
-                        bucket[index] = new LinkedList<>();
-                    }
-                    bucket[index].add(arr[j]);
-                } else {
-                    if (bucket[0] == null) {
-                        bucket[0] = new LinkedList<>();
-                    }
-                    bucket[0].add(arr[j]);
-                }
+        SortStats stats = startStats("argsort", keys.length);
+        long[] bits = new long[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            // radixArgsort orders signed longs, doubleKey orders unsigned
+            bits[i] = doubleKey(keys[i]) ^ Long.MIN_VALUE;
+        }
+        int[] perm = radixArgsort(bits);
+        finishStats(stats);
+        return perm;
+    }
+
+    /**
+     * Stable argsort of int keys ordered by a primitive comparator.
+     *
+     * Have a worst case running time of:
+     *  O(n log n)
+     *
+     * @throws IllegalArgumentException if keys or comparator is null
+     * @param keys the keys, left unchanged
+     * @param comparator the comparator used to compare the keys
+     * @return perm such that keys[perm[0]], keys[perm[1]], ... is sorted
+     */
+    public static int[] argsort(int[] keys, IntComparator comparator) {
+        if (keys == null || comparator == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        SortStats stats = startStats("argsort", keys.length);
+        IntComparator counting = countedInt(comparator, stats);
+        int[] perm = sortIndices(keys.length,
+                (i, j) -> counting.compare(keys[i], keys[j]), null, stats);
+        finishStats(stats);
+        return perm;
+    }
+
+    /**
+     * Unstable argsort of int keys ordered by a primitive comparator.
+     *
+     * Have a worst case running time of:
+     *  O(n log n)
+     *
+     * @throws IllegalArgumentException if keys, comparator or rand is null
+     * @param keys the keys, left unchanged
+     * @param comparator the comparator used to compare the keys
+     * @param rand the Random object used to select pivots
+     * @return perm such that keys[perm[0]], keys[perm[1]], ... is sorted
+     */
+    public static int[] unstableArgsort(int[] keys, IntComparator comparator,
+                                        Random rand) {
+        if (keys == null || comparator == null || rand == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        SortStats stats = startStats("unstableArgsort", keys.length);
+        IntComparator counting = countedInt(comparator, stats);
+        int[] perm = sortIndices(keys.length,
+                (i, j) -> counting.compare(keys[i], keys[j]), rand, stats);
+        finishStats(stats);
+        return perm;
+    }
+
+    /**
+     * Stable argsort of long keys ordered by a primitive comparator.
+     *
+     * Have a worst case running time of:
+     *  O(n log n)
+     *
+     * @throws IllegalArgumentException if keys or comparator is null
+     * @param keys the keys, left unchanged
+     * @param comparator the comparator used to compare the keys
+     * @return perm such that keys[perm[0]], keys[perm[1]], ... is sorted
+     */
+    public static int[] argsort(long[] keys, LongComparator comparator) {
+        if (keys == null || comparator == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        SortStats stats = startStats("argsort", keys.length);
+        LongComparator counting = countedLong(comparator, stats);
+        int[] perm = sortIndices(keys.length,
+                (i, j) -> counting.compare(keys[i], keys[j]), null, stats);
+        finishStats(stats);
+        return perm;
+    }
+
+    /**
+     * Unstable argsort of long keys ordered by a primitive comparator.
+     *
+     * Have a worst case running time of:
+     *  O(n log n)
+     *
+     * @throws IllegalArgumentException if keys, comparator or rand is null
+     * @param keys the keys, left unchanged
+     * @param comparator the comparator used to compare the keys
+     * @param rand the Random object used to select pivots
+     * @return perm such that keys[perm[0]], keys[perm[1]], ... is sorted
+     */
+    public static int[] unstableArgsort(long[] keys, LongComparator comparator,
+                                        Random rand) {
+        if (keys == null || comparator == null || rand == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        SortStats stats = startStats("unstableArgsort", keys.length);
+        LongComparator counting = countedLong(comparator, stats);
+        int[] perm = sortIndices(keys.length,
+                (i, j) -> counting.compare(keys[i], keys[j]), rand, stats);
+        finishStats(stats);
+        return perm;
+    }
+
+    /**
+     * Stable argsort of double keys ordered by a primitive comparator.
+     *
+     * Have a worst case running time of:
+     *  O(n log n)
+     *
+     * @throws IllegalArgumentException if keys or comparator is null
+     * @param keys the keys, left unchanged
+     * @param comparator the comparator used to compare the keys
+     * @return perm such that keys[perm[0]], keys[perm[1]], ... is sorted
+     */
+    public static int[] argsort(double[] keys, DoubleComparator comparator) {
+        if (keys == null || comparator == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        SortStats stats = startStats("argsort", keys.length);
+        DoubleComparator counting = countedDouble(comparator, stats);
+        int[] perm = sortIndices(keys.length,
+                (i, j) -> counting.compare(keys[i], keys[j]), null, stats);
+        finishStats(stats);
+        return perm;
+    }
+
+    /**
+     * Unstable argsort of double keys ordered by a primitive comparator.
+     *
+     * Have a worst case running time of:
+     *  O(n log n)
+     *
+     * @throws IllegalArgumentException if keys, comparator or rand is null
+     * @param keys the keys, left unchanged
+     * @param comparator the comparator used to compare the keys
+     * @param rand the Random object used to select pivots
+     * @return perm such that keys[perm[0]], keys[perm[1]], ... is sorted
+     */
+    public static int[] unstableArgsort(double[] keys,
+                                        DoubleComparator comparator,
+                                        Random rand) {
+        if (keys == null || comparator == null || rand == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        SortStats stats = startStats("unstableArgsort", keys.length);
+        DoubleComparator counting = countedDouble(comparator, stats);
+        int[] perm = sortIndices(keys.length,
+                (i, j) -> counting.compare(keys[i], keys[j]), rand, stats);
+        finishStats(stats);
+        return perm;
+    }
+
+    /**
+     * Rearranges every column so that column[i] becomes the old
+     * column[perm[i]], typically with a permutation from argsort.
+     *
+     * Each column is copied into a scratch array, one per element type and
+     * reused for every column of that type, and then gathered back in one
+     * pass that reads perm and writes the column sequentially. perm is only
+     * read, so several threads may gather different columns with the same
+     * perm at once. Columns may be arrays of any type; int[], long[],
+     * double[] and object arrays are gathered without reflection.
+     *
+     * Have a worst case running time of:
+     *  O(n * columns)
+     *
+     * @throws IllegalArgumentException if perm or columns is null, if an
+     * index in perm is out of range, or if a column is not an array as long
+     * as perm
+     * @param perm a permutation of the indices of the columns
+     * @param columns the arrays to rearrange
+     */
+    public static void gather(int[] perm, Object... columns) {
+        if (perm == null || columns == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        int length = perm.length;
+        for (Object column : columns) {
+            if (column == null || !column.getClass().isArray()
+                    || Array.getLength(column) != length) {
+                throw new IllegalArgumentException(
+                        "column is not an array of the permutation length!");
             }
-            int e = 0;
-            for (int k = 0; k < 10; k++) {
-                if (bucket[k] != null) {
-                    while (bucket[k].peek() != null) {
-                        arr[e++] = bucket[k].poll();
-                    }
-                }
+        }
+        for (int index : perm) {
+            if (index < 0 || index >= length) {
+                throw new IllegalArgumentException("index out of range!");
             }
-            exp *= 10;
         }
-        Queue<Integer> positive = new LinkedList<>();
-        Stack<Integer> negative = new Stack<>();
-        for (int i = 0; i < arr.length; i++) {
-            if (arr[i] < 0) {
-                negative.push(arr[i]);
+        int[] ints = null;
+        long[] longs = null;
+        double[] doubles = null;
+        Object[] objects = null;
+        for (Object column : columns) {
+            if (column instanceof int[]) {
+                int[] arr = (int[]) column;
+                ints = ints == null ? new int[length] : ints;
+                System.arraycopy(arr, 0, ints, 0, length);
+                for (int i = 0; i < length; i++) {
+                    arr[i] = ints[perm[i]];
+                }
+            } else if (column instanceof long[]) {
+                long[] arr = (long[]) column;
+                longs = longs == null ? new long[length] : longs;
+                System.arraycopy(arr, 0, longs, 0, length);
+                for (int i = 0; i < length; i++) {
+                    arr[i] = longs[perm[i]];
+                }
+            } else if (column instanceof double[]) {
+                double[] arr = (double[]) column;
+                doubles = doubles == null ? new double[length] : doubles;
+                System.arraycopy(arr, 0, doubles, 0, length);
+                for (int i = 0; i < length; i++) {
+                    arr[i] = doubles[perm[i]];
+                }
+            } else if (column instanceof Object[]) {
+                Object[] arr = (Object[]) column;
+                objects = objects == null ? new Object[length] : objects;
+                System.arraycopy(arr, 0, objects, 0, length);
+                for (int i = 0; i < length; i++) {
+                    arr[i] = objects[perm[i]];
+                }
             } else {
-                positive.add(arr[i]);
+                Object old = Array.newInstance(
+                        column.getClass().getComponentType(), length);
+                System.arraycopy(column, 0, old, 0, length);
+                for (int i = 0; i < length; i++) {
+                    Array.set(column, i, Array.get(old, perm[i]));
+                }
             }
         }
-        int m = 0;
-        while (!negative.empty()) {
-            arr[m] = negative.pop();
-            m++;
+    }
+
+    /**
+     * Sorts the indices 0, 1, ..., length - 1 for the argsorts.
+     *
+     * @param length the number of indices
+     * @param byIndex compares the elements at two indices
+     * @param rand the randomizer for an unstable quick sort, or null for a
+     * stable merge sort
+     * @param stats where to record allocations and partitions, or null
+     * @return the sorted indices
+     */
+    private static int[] sortIndices(int length, IntComparator byIndex,
+                                     Random rand, SortStats stats) {
+        int[] perm = new int[length];
+        for (int i = 0; i < length; i++) {
+            perm[i] = i;
         }
-        while (positive.peek() != null) {
-            arr[m] = positive.poll();
-            m++;
+        if (rand == null) {
+            if (stats != null) {
+                stats.addScratch(2L * length * Integer.BYTES);
+            }
+            PrimitiveSorts.mergeSort(perm.clone(), perm, 0, length, byIndex);
+        } else {
+            if (stats != null) {
+                stats.addScratch((long) length * Integer.BYTES);
+            }
+            PrimitiveSorts.quickSort(perm, byIndex, rand, 0, length,
+                    introDepth(length), stats);
         }
-        return arr;
+        return perm;
+    }
+
+    /**
+     * Validates the arguments shared by the radix sorts.
+     *
+     * @param arr the array to be sorted
+     * @param buffer the scratch buffer
+     * @param length length of arr
+     * @param bufferLength length of buffer
+     */
+    private static void checkRadixBuffer(Object arr, Object buffer,
+                                         int length, int bufferLength) {
+        if (arr == null || buffer == null) {
+            throw new IllegalArgumentException("parameter null!");
+        }
+        if (bufferLength < length) {
+            throw new IllegalArgumentException("buffer too small!");
+        }
+    }
+
+    /**
+     * Turns the digit counts of one radix pass into starting offsets.
+     *
+     * @param counts the histograms of every pass
+     * @param base index of the first bucket of this pass in counts
+     * @param lo index the first bucket starts at
+     * @param length number of elements being sorted
+     * @return false if every element falls into a single bucket, in which
+     * case the pass would not move anything and can be skipped
+     */
+    private static boolean radixOffsets(int[] counts, int base, int lo,
+                                        int length) {
+        int sum = lo;
+        for (int d = base; d < base + RADIX; d++) {
+            int count = counts[d];
+            if (count == length) {
+                return false;
+            }
+            counts[d] = sum;
+            sum += count;
+        }
+        return true;
+    }
+
+    /**
+     * Turns per-chunk digit counts into per-chunk scatter offsets. Every
+     * chunk writes a digit after all smaller digits and after the same digit
+     * of earlier chunks, which keeps the scatter stable.
+     *
+     * @param counts one histogram per chunk, replaced by the offsets
+     * @param bucketStart filled with the first index of every bucket, with
+     * the array length as the last entry
+     */
+    private static void parallelOffsets(int[][] counts, int[] bucketStart) {
+        int sum = 0;
+        for (int d = 0; d < RADIX; d++) {
+            bucketStart[d] = sum;
+            for (int[] count : counts) {
+                int c = count[d];
+                count[d] = sum;
+                sum += c;
+            }
+        }
+        bucketStart[RADIX] = sum;
+    }
+
+    /**
+     * Runs body once for every index in [0, count) as tasks of the common
+     * ForkJoinPool and waits for all of them.
+     *
+     * @param count the number of tasks
+     * @param body the work for one index
+     */
+    private static void forEachParallel(int count, IntConsumer body) {
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            tasks.add(ForkJoinTask.adapt(() -> body.accept(index)));
+        }
+        ForkJoinPool.commonPool().invoke(ForkJoinTask.adapt(() -> {
+            ForkJoinTask.invokeAll(tasks);
+        }));
+    }
+
+    /**
+     * Maps a float onto an int whose unsigned order matches the float order.
+     *
+     * @param value the float
+     * @return the unsigned sort key
+     */
+    private static int floatKey(float value) {
+        int bits = Float.floatToIntBits(value);
+        return bits ^ ((bits >> 31) | Integer.MIN_VALUE);
+    }
+
+    /**
+     * Maps a double onto a long whose unsigned order matches the double order.
+     *
+     * @param value the double
+     * @return the unsigned sort key
+     */
+    private static long doubleKey(double value) {
+        long bits = Double.doubleToLongBits(value);
+        return bits ^ ((bits >> 63) | Long.MIN_VALUE);
     }
 
     /**
@@ -1,10 +1,26 @@
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -16,6 +32,9 @@ public class SortingStudentTests {
     private ComparatorPlus<TeachingAssistant> comp;
     private static final int TIMEOUT = 200;
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @Before
     public void setUp() {
         tas = new TeachingAssistant[10];
@@ -90,6 +109,293 @@ public class SortingStudentTests {
                 comp.getCount() <= 48);
     }
 
+    @Test(timeout = TIMEOUT)
+    public void testParallelQuickSort() {
+        Sorting.parallelQuickSort(tas, comp, new Random(0x600dc0de), 1);
+        for (int i = 1; i < tas.length; i++) {
+            assertTrue(tas[i].getName().compareTo(tas[i - 1].getName())
+                    >= 0);
+        }
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void testQuickSortDuplicatesAndBadPivots() {
+        Integer[] data = new Integer[5000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = i % 7 == 0 ? i : 3;
+        }
+        Random worstPivots = new Random() {
+            @Override
+            public int nextInt(int bound) {
+                return 0;
+            }
+        };
+        Sorting.quickSort(data, Comparator.naturalOrder(), worstPivots);
+        for (int i = 1; i < data.length; i++) {
+            assertTrue(data[i] >= data[i - 1]);
+        }
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void testSortedIterator() {
+        Iterator<TeachingAssistant> it = Sorting.sortedIterator(tas, comp,
+                new Random(0x600dc0de));
+        for (int i = 0; i < tasByName.length; i++) {
+            assertTrue(it.hasNext());
+            assertSame(tasByName[i], it.next());
+        }
+        assertFalse(it.hasNext());
+        assertArrayEquals(tasByName, tas);
+
+        Integer[] data = new Integer[5000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (i * 7919) % data.length;
+        }
+        assertArrayEquals(new Object[] {0, 1, 2, 3, 4},
+                Sorting.sortedStream(data, Comparator.naturalOrder(),
+                        new Random(0x600dc0de)).limit(5).toArray());
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void testKWayMerge() {
+        TeachingAssistant[][] byAge = {
+            {tas[2], tas[4], tas[0]},
+            {tas[5], tas[8], tas[1]},
+            {},
+            {tas[7], tas[9]}
+        };
+        TeachingAssistant[] expected = {tas[5], tas[2], tas[8], tas[7],
+            tas[4], tas[9], tas[0], tas[1]};
+        assertArrayEquals(expected, Sorting.kWayMerge(byAge,
+                TeachingAssistant.getAgeComparator()));
+
+        List<Iterator<TeachingAssistant>> inputs = new ArrayList<>();
+        for (TeachingAssistant[] run : byAge) {
+            inputs.add(Arrays.asList(run).iterator());
+        }
+        Iterator<TeachingAssistant> it = Sorting.kWayMerge(inputs,
+                TeachingAssistant.getAgeComparator());
+        for (TeachingAssistant ta : expected) {
+            assertTrue(it.hasNext());
+            assertSame(ta, it.next());
+        }
+        assertFalse(it.hasNext());
+
+        assertArrayEquals(new int[] {-3, 1, 2, 2, 5, 8},
+                Sorting.kWayMerge(new int[][] {{2, 5}, {-3, 2, 8}, {1}}));
+        assertArrayEquals(new long[] {4L, 7L, 9L},
+                Sorting.kWayMerge(new long[][] {{7L}, {4L, 9L}}));
+        assertArrayEquals(new double[] {-0.5, 0.25, 3.0},
+                Sorting.kWayMerge(new double[][] {{0.25}, {-0.5, 3.0}}), 0.0);
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void testRecordSorts() {
+        // 12-byte records: an int id followed by a long key
+        long[] keys = {42L, -7L, 1L << 40, 42L, 0L, -7L, 3L};
+        ByteBuffer records = ByteBuffer.allocateDirect(4 + 12 * keys.length);
+        records.position(4);
+        for (int i = 0; i < keys.length; i++) {
+            records.putInt(4 + 12 * i, i).putLong(8 + 12 * i, keys[i]);
+        }
+
+        Sorting.sortRecordsByKey(records, 12, (buf, at) -> buf.getLong(at + 4));
+        assertEquals(4, records.position());
+        int[] stableIds = {1, 5, 4, 6, 0, 3, 2};
+        for (int i = 0; i < keys.length; i++) {
+            assertEquals(stableIds[i], records.getInt(4 + 12 * i));
+        }
+
+        // as unsigned bytes the negative keys come last
+        long[] unsigned = {0L, 3L, 42L, 42L, 1L << 40, -7L, -7L};
+        Sorting.quickSortRecords(records, 12, 4, 8, new Random(0x600dc0de));
+        for (int i = 0; i < keys.length; i++) {
+            assertEquals(unsigned[i], records.getLong(8 + 12 * i));
+        }
+        Sorting.sortRecordsByKey(records, 12, (buf, at) -> buf.getInt(at));
+        Sorting.radixSortRecords(records, 12, 4, 8);
+        for (int i = 0; i < keys.length; i++) {
+            assertEquals(unsigned[i], records.getLong(8 + 12 * i));
+            assertEquals(keys[records.getInt(4 + 12 * i)],
+                    records.getLong(8 + 12 * i));
+        }
+
+        // 20-byte little-endian records: an int id, a 12-byte key and
+        // padding, with a bucket of ten keys that are compared a long at a
+        // time from their third byte on
+        int count = 100;
+        byte[][] wideKeys = new byte[count][12];
+        Random rand = new Random(0x600dc0de);
+        for (int i = 0; i < count; i++) {
+            Arrays.fill(wideKeys[i], (byte) 0xA5);
+            wideKeys[i][1] = (byte) (i % 10 == 0 ? 0x01 : 0xA5);
+            wideKeys[i][2] = (byte) (i % 5 == 0 ? 0x10 : 0xA5);
+            wideKeys[i][6] = (byte) (i % 3 == 0 ? 0x20 : 0xA5);
+            for (int j = 8; j < 12; j++) {
+                wideKeys[i][j] = (byte) (rand.nextInt(3) * 0x70);
+            }
+        }
+        byte[][] sortedKeys = wideKeys.clone();
+        Arrays.sort(sortedKeys, Arrays::compareUnsigned);
+        ByteBuffer wide = ByteBuffer.allocate(20 * count)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        for (int sort = 0; sort < 2; sort++) {
+            for (int i = 0; i < count; i++) {
+                wide.putInt(20 * i, i).put(20 * i + 4, wideKeys[i]);
+            }
+            if (sort == 0) {
+                Sorting.radixSortRecords(wide, 20, 4, 12);
+            } else {
+                Sorting.quickSortRecords(wide, 20, 4, 12,
+                        new Random(0x600dc0de));
+            }
+            byte[] key = new byte[12];
+            for (int i = 0; i < count; i++) {
+                wide.get(20 * i + 4, key);
+                assertArrayEquals(sortedKeys[i], key);
+                assertArrayEquals(wideKeys[wide.getInt(20 * i)], key);
+            }
+        }
+
+        Integer[] byLittleEndian = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            byLittleEndian[i] = i;
+        }
+        Arrays.sort(byLittleEndian, Comparator.comparingLong(id -> ByteBuffer
+                .wrap(wideKeys[id]).order(ByteOrder.LITTLE_ENDIAN).getLong()));
+        for (int i = 0; i < count; i++) {
+            wide.putInt(20 * i, i).put(20 * i + 4, wideKeys[i]);
+        }
+        Sorting.sortRecordsByKey(wide, 20, (buf, at) -> buf.getLong(at + 4));
+        for (int i = 0; i < count; i++) {
+            assertEquals((int) byLittleEndian[i], wide.getInt(20 * i));
+        }
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void testSortByCachedKey() {
+        int[] calls = new int[1];
+        Sorting.sortByCachedKey(tas, ta -> {
+            calls[0]++;
+            return ta.getName().toLowerCase();
+        }, String::compareTo);
+        assertArrayEquals(tasByName, tas);
+        assertEquals(tas.length, calls[0]);
+
+        Sorting.sortByCachedKey(tas, TeachingAssistant::getAge,
+                Integer::compare);
+        assertArrayEquals(new TeachingAssistant[] {tasByName[8],
+            tasByName[4], tasByName[5], tasByName[6], tasByName[1],
+            tasByName[2], tasByName[9], tasByName[0], tasByName[3],
+            tasByName[7]}, tas);
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void testSortDistinctAndCount() {
+        int[] counts = new int[tas.length];
+        assertEquals(4, Sorting.sortCount(tas,
+                TeachingAssistant.getAgeComparator(), counts));
+        assertArrayEquals(new TeachingAssistant[] {tasByName[8],
+            tasByName[4], tasByName[1], tasByName[0], null, null, null, null,
+            null, null}, tas);
+        assertArrayEquals(new int[] {1, 3, 3, 3},
+                Arrays.copyOf(counts, 4));
+
+        int[] ints = {5, -2, 5, 300, 5, -2, 7, 1 << 24, 300};
+        assertEquals(5, Sorting.sortCount(ints, counts));
+        assertArrayEquals(new int[] {-2, 5, 7, 300, 1 << 24},
+                Arrays.copyOf(ints, 5));
+        assertArrayEquals(new int[] {2, 3, 1, 2, 1}, Arrays.copyOf(counts, 5));
+
+        long[] longs = {9L, Long.MIN_VALUE, 9L, 0L, Long.MIN_VALUE};
+        assertEquals(3, Sorting.sortDistinct(longs));
+        assertArrayEquals(new long[] {Long.MIN_VALUE, 0L, 9L},
+                Arrays.copyOf(longs, 3));
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void testCancellableSorts() {
+        long[] last = new long[2];
+        SortControl control = new SortControl((done, total) -> {
+            last[0] = done;
+            last[1] = total;
+        });
+        assertTrue(Sorting.mergeSort(tas, comp, control));
+        assertArrayEquals(tasByName, tas);
+        assertEquals(last[1], last[0]);
+
+        Integer[] data = new Integer[1000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (i * 7919) % data.length;
+        }
+        assertTrue(Sorting.quickSort(data.clone(), Comparator.naturalOrder(),
+                new Random(0x600dc0de), control));
+        assertEquals(data.length, last[0]);
+
+        SortControl cancelling = new SortControl((done, total) -> {
+            if (done > 0) {
+                throw new AssertionError("should have stopped");
+            }
+        });
+        cancelling.cancel();
+        Integer[] copy = data.clone();
+        assertFalse(Sorting.quickSort(copy, Comparator.naturalOrder(),
+                new Random(0x600dc0de), cancelling));
+        assertArrayEquals(data, copy);
+        assertFalse(Sorting.mergeSort(copy, Comparator.naturalOrder(),
+                new SortControl(0, TimeUnit.NANOSECONDS, SortProgress.NONE)));
+        assertArrayEquals(data, copy);
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void testSelectAndPartialSort() {
+        assertTrue(Sorting.select(tas, 4, comp) == tasByName[4]);
+        Sorting.partialSort(tas, 3, comp);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(tas[i] == tasByName[i]);
+        }
+
+        int[] ints = new int[] {54, 28, -58, 84, 20, 122, 85, 3, 20};
+        assertTrue(Sorting.select(ints, 4) == 28);
+        Sorting.partialSort(ints, 5);
+        assertArrayEquals(new int[] {-58, 3, 20, 20, 28},
+                Arrays.copyOf(ints, 5));
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void testTimSort() {
+        Sorting.timSort(tas, comp);
+        assertArrayEquals(tasByName, tas);
+
+        ComparatorPlus<TeachingAssistant> sortedComp =
+                TeachingAssistant.getNameComparator();
+        Sorting.timSort(tas, sortedComp);
+        assertArrayEquals(tasByName, tas);
+        assertTrue("Number of comparisons: " + sortedComp.getCount(),
+                sortedComp.getCount() <= tas.length - 1);
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void testMergeSortBuffered() {
+        Sorting.mergeSort(tas, comp, new TeachingAssistant[tas.length]);
+        assertArrayEquals(tasByName, tas);
+        assertTrue("Number of comparisons: " + comp.getCount(),
+                comp.getCount() <= 48);
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void testParallelMergeSort() {
+        Sorting.parallelMergeSort(tas, comp, 1);
+        assertArrayEquals(tasByName, tas);
+
+        TeachingAssistant[] tasByAge = new TeachingAssistant[] {tas[8],
+            tas[4], tas[5], tas[6], tas[1], tas[2], tas[9], tas[0], tas[3],
+            tas[7]};
+        Sorting.parallelMergeSort(tas,
+                TeachingAssistant.getAgeComparator(), 1);
+        assertArrayEquals(tasByAge, tas);
+    }
+
     @Test(timeout = TIMEOUT)
     public void testRadixSort() {
         int[] unsortedArray = new int[] {54, 28, 58, 84, 20, 122, 85, 3};
@@ -97,6 +403,301 @@ public class SortingStudentTests {
         assertArrayEquals(sortedArray, Sorting.radixSort(unsortedArray));
     }
 
+    @Test(timeout = TIMEOUT)
+    public void testRadixSortNegative() {
+        int[] unsortedArray = new int[] {54, -28, 0, Integer.MIN_VALUE, -3,
+            Integer.MAX_VALUE, 85, -3};
+        int[] sortedArray = new int[] {Integer.MIN_VALUE, -28, -3, -3, 0, 54,
+            85, Integer.MAX_VALUE};
+        assertArrayEquals(sortedArray, Sorting.radixSort(unsortedArray,
+                new int[unsortedArray.length]));
+        assertArrayEquals(new int[0], Sorting.radixSort(new int[0]));
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void testRadixSortLongFloatDouble() {
+        long[] longs = new long[] {5L, Long.MIN_VALUE, -1L, 1L << 40, 0L};
+        assertArrayEquals(new long[] {Long.MIN_VALUE, -1L, 0L, 5L, 1L << 40},
+                Sorting.radixSort(longs));
+        float[] floats = new float[] {2.5f, Float.NaN, -0.0f, -7f, 0.0f,
+            Float.NEGATIVE_INFINITY};
+        assertArrayEquals(new float[] {Float.NEGATIVE_INFINITY, -7f, -0.0f,
+            0.0f, 2.5f, Float.NaN}, Sorting.radixSort(floats), 0f);
+        double[] doubles = new double[] {1e300, -1e-300, 0.0, -2.0};
+        assertArrayEquals(new double[] {-2.0, -1e-300, 0.0, 1e300},
+                Sorting.radixSort(doubles), 0.0);
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void testStringSorts() {
+        String shared = "abracadabra".repeat(8);
+        List<CharSequence> keys = new ArrayList<>(Arrays.asList("", "",
+            "a", "ab", "abc", "abcd", "b", "ba", "\u0100", "z\u00ff", "z",
+            shared, shared + "a", shared, new StringBuilder(shared + "a"),
+            new StringBuilder(), new StringBuilder("ab"), "ab"));
+        Random rand = new Random(0x600dc0de);
+        for (int i = 0; i < 40; i++) {
+            StringBuilder key = new StringBuilder(shared);
+            int length = rand.nextInt(4);
+            for (int j = 0; j < length; j++) {
+                key.append((char) ('a' + rand.nextInt(3)));
+            }
+            keys.add(i % 2 == 0 ? key : key.toString());
+        }
+        Collections.shuffle(keys, rand);
+        CharSequence[] arr = keys.toArray(new CharSequence[0]);
+        CharSequence[] sorted = arr.clone();
+        Arrays.sort(sorted, Comparator.comparing(CharSequence::toString));
+
+        CharSequence[] msd = arr.clone();
+        Sorting.msdRadixSort(msd);
+        for (int i = 0; i < sorted.length; i++) {
+            assertSame(sorted[i], msd[i]);
+        }
+
+        CharSequence[] multikey = arr.clone();
+        Sorting.radixQuickSort(multikey, new Random(0x600dc0de));
+        for (int i = 0; i < sorted.length; i++) {
+            assertEquals(sorted[i].toString(), multikey[i].toString());
+        }
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void testSortByKey() {
+        TeachingAssistant[] tasByAge = new TeachingAssistant[] {tas[5],
+            tas[2], tas[7], tas[8], tas[4], tas[6], tas[9], tas[0], tas[1],
+            tas[3]};
+        TeachingAssistant[] copy = tas.clone();
+        Sorting.sortByKey(tas, TeachingAssistant::getAge);
+        assertArrayEquals(tasByAge, tas);
+        Sorting.sortByLongKey(copy, ta -> (long) ta.getAge() - Long.MAX_VALUE);
+        assertArrayEquals(tasByAge, copy);
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void testPrimitiveComparisonSorts() {
+        Random rand = new Random(0x600dc0de);
+        int[] ints = new int[500];
+        long[] longs = new long[ints.length];
+        double[] doubles = new double[ints.length];
+        for (int i = 0; i < ints.length; i++) {
+            ints[i] = rand.nextInt(1000) - 500;
+            longs[i] = rand.nextLong();
+            doubles[i] = i % 50 == 0 ? Double.NaN : i % 7 == 0 ? -0.0
+                    : rand.nextGaussian();
+        }
+        int[] sortedInts = ints.clone();
+        long[] sortedLongs = longs.clone();
+        double[] sortedDoubles = doubles.clone();
+        Arrays.sort(sortedInts);
+        Arrays.sort(sortedLongs);
+        Arrays.sort(sortedDoubles);
+
+        int[] copy = ints.clone();
+        Sorting.insertionSort(copy);
+        assertArrayEquals(sortedInts, copy);
+        copy = ints.clone();
+        Sorting.quickSort(copy, new Random(0x600dc0de));
+        assertArrayEquals(sortedInts, copy);
+        copy = ints.clone();
+        Sorting.mergeSort(copy);
+        assertArrayEquals(sortedInts, copy);
+
+        long[] longCopy = longs.clone();
+        Sorting.quickSort(longCopy, new Random(0x600dc0de));
+        assertArrayEquals(sortedLongs, longCopy);
+        longCopy = longs.clone();
+        Sorting.mergeSort(longCopy, (a, b) -> Long.compare(b, a));
+        for (int i = 0; i < longs.length; i++) {
+            assertEquals(sortedLongs[longs.length - 1 - i], longCopy[i]);
+        }
+
+        double[] doubleCopy = doubles.clone();
+        Sorting.quickSort(doubleCopy, new Random(0x600dc0de));
+        assertArrayEquals(sortedDoubles, doubleCopy, 0);
+        doubleCopy = doubles.clone();
+        Sorting.insertionSort(doubleCopy);
+        assertArrayEquals(sortedDoubles, doubleCopy, 0);
+
+        // ordering by tens only, so the sorts must keep each ten in order
+        Integer[] boxed = new Integer[ints.length];
+        for (int i = 0; i < ints.length; i++) {
+            boxed[i] = ints[i];
+        }
+        Arrays.sort(boxed, Comparator.comparingInt(a -> a / 10));
+        int[] byTens = new int[ints.length];
+        for (int i = 0; i < ints.length; i++) {
+            byTens[i] = boxed[i];
+        }
+        copy = ints.clone();
+        Sorting.mergeSort(copy, (a, b) -> Integer.compare(a / 10, b / 10));
+        assertArrayEquals(byTens, copy);
+        copy = ints.clone();
+        Sorting.insertionSort(copy, (a, b) -> Integer.compare(a / 10,
+                b / 10));
+        assertArrayEquals(byTens, copy);
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void testArgsortAndGather() {
+        TeachingAssistant[] tasByAge = new TeachingAssistant[] {tas[5],
+            tas[2], tas[7], tas[8], tas[4], tas[6], tas[9], tas[0], tas[1],
+            tas[3]};
+        TeachingAssistant[] original = tas.clone();
+        int[] ages = new int[tas.length];
+        String[] names = new String[tas.length];
+        for (int i = 0; i < tas.length; i++) {
+            ages[i] = tas[i].getAge();
+            names[i] = tas[i].getName();
+        }
+        int[] perm = Sorting.argsort(tas,
+                TeachingAssistant.getAgeComparator());
+        assertArrayEquals(original, tas);
+        assertArrayEquals(perm, Sorting.argsort(ages));
+        assertArrayEquals(perm, Sorting.argsort(ages, Integer::compare));
+        int[] permCopy = perm.clone();
+        Sorting.gather(perm, tas, ages, names);
+        assertArrayEquals(permCopy, perm);
+        assertArrayEquals(tasByAge, tas);
+        for (int i = 0; i < tas.length; i++) {
+            assertEquals(tas[i].getAge(), ages[i]);
+            assertEquals(tas[i].getName(), names[i]);
+        }
+
+        perm = Sorting.unstableArgsort(original,
+                TeachingAssistant.getAgeComparator(), new Random(0x600dc0de));
+        for (int i = 1; i < perm.length; i++) {
+            assertTrue(original[perm[i - 1]].getAge()
+                    <= original[perm[i]].getAge());
+        }
+
+        double[] keys = {2.5, -0.0, Double.NaN, 0.0, -7, 2.5};
+        double[] sortedKeys = keys.clone();
+        Arrays.sort(sortedKeys);
+        double[] gathered = keys.clone();
+        Sorting.gather(Sorting.argsort(keys), gathered);
+        assertArrayEquals(sortedKeys, gathered, 0);
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void testSort() {
+        assertEquals(SortDecision.Strategy.INSERTION_SORT,
+                Sorting.sort(tas, comp).getStrategy());
+        assertArrayEquals(tasByName, tas);
+
+        Random rand = new Random(0x600dc0de);
+        Integer[] sorted = new Integer[1000];
+        Integer[] rotated = new Integer[sorted.length];
+        Integer[] duplicates = new Integer[sorted.length];
+        Integer[] random = new Integer[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = i;
+            rotated[i] = (i + 500) % sorted.length;
+            duplicates[i] = rand.nextInt(5);
+            random[i] = rand.nextInt();
+        }
+        Comparator<Integer> natural = Comparator.naturalOrder();
+        assertEquals(SortDecision.Strategy.INSERTION_SORT,
+                Sorting.sort(sorted.clone(), natural).getStrategy());
+        assertEquals(SortDecision.Strategy.TIM_SORT,
+                Sorting.sort(rotated, natural).getStrategy());
+        assertArrayEquals(sorted, rotated);
+        Integer[] copy = duplicates.clone();
+        assertEquals(SortDecision.Strategy.QUICK_SORT,
+                Sorting.sort(duplicates, natural).getStrategy());
+        assertEquals(SortDecision.Strategy.QUICK_SORT,
+                Sorting.sort(copy, natural, new Random(0x600dc0de))
+                        .getStrategy());
+        assertArrayEquals(duplicates, copy);
+        Sorting.sort(random, natural);
+        for (int i = 1; i < sorted.length; i++) {
+            assertTrue(duplicates[i] >= duplicates[i - 1]);
+            assertTrue(random[i] >= random[i - 1]);
+        }
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void testSortListener() {
+        List<SortStats> reports = new ArrayList<>();
+        Integer[] data = new Integer[1000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (i * 7919) % data.length;
+        }
+        int[] comparisons = new int[1];
+        Comparator<Integer> counting = (a, b) -> {
+            comparisons[0]++;
+            return a.compareTo(b);
+        };
+        Sorting.setSortListener(reports::add);
+        try {
+            Sorting.cocktailShakerSort(tas, comp);
+            Sorting.quickSort(data, counting, new Random(0x600dc0de));
+            Sorting.radixSort(new int[] {3, -1, 4, -1, 5, -9, 2, 6, 5, 3,
+                5, -8, 9, 7, 9, 3, 2, -3, 8, 4, 6, 2, 6, 4, 3, 3, 8, 3, 2,
+                7, 9, 5, 0, 2, 8});
+        } finally {
+            Sorting.setSortListener(SortListener.NONE);
+        }
+        assertEquals(3, reports.size());
+        SortStats cocktail = reports.get(0);
+        assertEquals("cocktailShakerSort", cocktail.getAlgorithm());
+        assertEquals(comp.getCount(), cocktail.getComparisons());
+        assertTrue(cocktail.getPasses() > 0);
+        SortStats quick = reports.get(1);
+        assertEquals(comparisons[0], quick.getComparisons());
+        assertTrue(quick.getPartitions() > 0);
+        assertTrue(quick.getPivotQuality() > 0
+                && quick.getPivotQuality() <= 0.5);
+        assertTrue(quick.getMaxDepth() > 0);
+        SortStats radix = reports.get(2);
+        assertTrue(radix.getPasses() > 0);
+        assertTrue(radix.getScratchBytes() >= 35 * Integer.BYTES);
+    }
+
+    @Test(timeout = TIMEOUT * 5)
+    public void testParallelRadixSort() {
+        Random rand = new Random(0x600dc0de);
+        int[] ints = new int[50000];
+        long[] longs = new long[ints.length];
+        for (int i = 0; i < ints.length; i++) {
+            ints[i] = rand.nextInt() >> rand.nextInt(32);
+            longs[i] = rand.nextLong() >> rand.nextInt(64);
+        }
+        int[] sortedInts = ints.clone();
+        long[] sortedLongs = longs.clone();
+        Arrays.sort(sortedInts);
+        Arrays.sort(sortedLongs);
+        assertArrayEquals(sortedInts, Sorting.radixSort(ints, 4));
+        assertArrayEquals(sortedLongs, Sorting.radixSort(longs, 4));
+    }
+
+    @Test(timeout = TIMEOUT * 5)
+    public void testExternalSort() throws IOException {
+        ByteBuffer records = ByteBuffer.allocate(20 * 8);
+        for (int i = 0; i < 20; i++) {
+            records.putInt((i * 7) % 5).putInt(i);
+        }
+        Path input = folder.newFile("input").toPath();
+        Path output = folder.newFile("output").toPath();
+        Files.write(input, records.array());
+
+        new ExternalSort(8, 3, 2,
+            (a, b) -> Integer.compare(a.getInt(0), b.getInt(0)),
+            folder.getRoot().toPath()).sort(input, output);
+
+        ByteBuffer sorted = ByteBuffer.wrap(Files.readAllBytes(output));
+        assertTrue(sorted.capacity() == 20 * 8);
+        int prevKey = -1;
+        int prevIndex = -1;
+        for (int i = 0; i < 20; i++) {
+            int key = sorted.getInt();
+            int index = sorted.getInt();
+            assertTrue(key > prevKey || (key == prevKey && index > prevIndex));
+            prevKey = key;
+            prevIndex = index;
+        }
+    }
+
     /**
      * Class for testing proper sorting.
      */
@@ -0,0 +1,311 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The string sorts behind {@link Sorting#msdRadixSort(CharSequence[])} and
+ * {@link Sorting#radixQuickSort(CharSequence[], Random)}.
+ *
+ * Both sort by UTF-16 code unit, which is the order of
+ * {@link String#compareTo(String)}, and both only ever look at the
+ * characters past the prefix that a range of keys is already known to
+ * share. Ranges of at most STRING_INSERTION_THRESHOLD keys are finished
+ * with an insertion sort that compares from the end of that prefix.
+ * Arguments are validated by Sorting.
+ *
+ * @author Ziyu Zhang
+ * @version 1.0
+ */
+final class StringSorts {
+
+    /**
+     * Range size at or below which both sorts switch to insertion sort.
+     */
+    private static final int STRING_INSERTION_THRESHOLD = 16;
+
+    /**
+     * Number of values a byte digit can take.
+     */
+    private static final int BYTE_RADIX = 256;
+
+    /**
+     * Not instantiable.
+     */
+    private StringSorts() {
+    }
+
+    /**
+     * Stable MSD radix sort.
+     *
+     * Every character is split into its high and low byte, so a digit has
+     * 256 values plus one for the end of the key and the histogram stays
+     * small however wide the characters are. Ranges are kept on an explicit
+     * stack rather than recursed into, so keys with very long common
+     * prefixes cannot overflow the call stack. A range whose keys all share
+     * the next digit moves on to the digit after it without moving any key.
+     *
+     * The pass over a high byte also counts the low bytes and ORs the
+     * characters together. When every high byte is 0, as with ASCII and
+     * Latin-1 keys, the range is distributed on the low byte straight away,
+     * so each character position costs a single pass over the keys.
+     *
+     * @param arr the array to be sorted
+     * @param aux scratch space as long as arr
+     * @param stats where to record passes and moves, or null
+     */
+    static void msdRadixSort(CharSequence[] arr, CharSequence[] aux,
+                             SortStats stats) {
+        int[] count = new int[BYTE_RADIX + 2];
+        int[] lowCount = new int[BYTE_RADIX + 2];
+        // pending ranges as lo, hi, digit triples
+        int[] stack = new int[3 * 16];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = arr.length;
+        stack[top++] = 0;
+        while (top > 0) {
+            int d = stack[--top];
+            int hi = stack[--top];
+            int lo = stack[--top];
+            if (hi - lo <= STRING_INSERTION_THRESHOLD) {
+                long moves = insertionSort(arr, lo, hi, d >>> 1);
+                if (stats != null) {
+                    stats.addMoves(moves);
+                }
+                continue;
+            }
+            Arrays.fill(count, 0);
+            if ((d & 1) == 0) {
+                Arrays.fill(lowCount, 0);
+                int at = d >>> 1;
+                int or = 0;
+                for (int i = lo; i < hi; i++) {
+                    CharSequence key = arr[i];
+                    if (at < key.length()) {
+                        char c = key.charAt(at);
+                        or |= c;
+                        count[(c >>> 8) + 2]++;
+                        lowCount[(c & 0xFF) + 2]++;
+                    } else {
+                        count[1]++;
+                        lowCount[1]++;
+                    }
+                }
+                if (or >>> 8 == 0) {
+                    // every high byte is 0, go on with the low byte
+                    int[] tmp = count;
+                    count = lowCount;
+                    lowCount = tmp;
+                    d++;
+                }
+            } else {
+                for (int i = lo; i < hi; i++) {
+                    count[digit(arr[i], d) + 2]++;
+                }
+            }
+            if (stats != null) {
+                stats.addPass();
+                stats.reachDepth(d + 1);
+            }
+            int first = digit(arr[lo], d) + 2;
+            if (count[first] == hi - lo) {
+                // every key has the same digit here
+                if (first > 1) {
+                    stack = grow(stack, top);
+                    top = push(stack, top, lo, hi, d + 1);
+                }
+                continue;
+            }
+            for (int r = 0; r <= BYTE_RADIX; r++) {
+                count[r + 1] += count[r];
+            }
+            for (int i = lo; i < hi; i++) {
+                aux[lo + count[digit(arr[i], d) + 1]++] = arr[i];
+            }
+            System.arraycopy(aux, lo, arr, lo, hi - lo);
+            if (stats != null) {
+                stats.addMoves(2L * (hi - lo));
+            }
+            // count[r] is now the end of bucket r - 1; bucket -1 (keys that
+            // ended) holds equal keys and needs no further sorting
+            for (int r = 1; r <= BYTE_RADIX; r++) {
+                int start = lo + count[r - 1];
+                int end = lo + count[r];
+                if (end - start > 1) {
+                    stack = grow(stack, top);
+                    top = push(stack, top, start, end, d + 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Three-way radix quick sort (Bentley and Sedgewick): partitions a
+     * range around the character at the current position of a random
+     * pivot key, then sorts the smaller and larger parts at the same
+     * position and the equal part at the next one. The equal part is
+     * handled by the loop rather than by recursion, so long common prefixes
+     * do not deepen the stack.
+     *
+     * @param arr the array to be sorted
+     * @param rand the randomizer
+     * @param lo first index, inclusive
+     * @param hi last index, exclusive
+     * @param d position of the character to partition on
+     * @param depth recursion depth of this call, the top level being 1
+     * @param stats where to record partitions and moves, or null
+     */
+    static void radixQuickSort(CharSequence[] arr, Random rand, int lo,
+                               int hi, int d, int depth, SortStats stats) {
+        while (hi - lo > STRING_INSERTION_THRESHOLD) {
+            int pivot = charAt(arr[rand.nextInt(hi - lo) + lo], d);
+            int lt = lo;
+            int i = lo;
+            int gt = hi;
+            while (i < gt) {
+                int c = charAt(arr[i], d);
+                if (c < pivot) {
+                    swap(arr, lt++, i++);
+                } else if (c > pivot) {
+                    swap(arr, i, --gt);
+                } else {
+                    i++;
+                }
+            }
+            if (stats != null) {
+                stats.addPartition(Math.min(lt - lo, hi - gt), hi - lo);
+                stats.addMoves((lt - lo) + (hi - gt));
+                stats.reachDepth(depth);
+            }
+            radixQuickSort(arr, rand, lo, lt, d, depth + 1, stats);
+            radixQuickSort(arr, rand, gt, hi, d, depth + 1, stats);
+            if (pivot < 0) {
+                // the equal keys all ended at d
+                return;
+            }
+            lo = lt;
+            hi = gt;
+            d++;
+        }
+        long moves = insertionSort(arr, lo, hi, d);
+        if (stats != null) {
+            stats.addMoves(moves);
+        }
+    }
+
+    /**
+     * Insertion sort of arr[lo, hi), whose keys all share their first from
+     * characters.
+     *
+     * @param arr the array
+     * @param lo first index, inclusive
+     * @param hi last index, exclusive
+     * @param from number of leading characters known to be equal
+     * @return the number of keys shifted
+     */
+    private static long insertionSort(CharSequence[] arr, int lo, int hi,
+                                      int from) {
+        long moves = 0;
+        for (int i = lo; i < hi - 1; i++) {
+            CharSequence tmp = arr[i + 1];
+            int k = i;
+            while (k >= lo && compare(arr[k], tmp, from) > 0) {
+                arr[k + 1] = arr[k];
+                k--;
+            }
+            arr[k + 1] = tmp;
+            moves += i - k;
+        }
+        return moves;
+    }
+
+    /**
+     * Compares two keys lexicographically, starting at position from.
+     *
+     * @param a the first key
+     * @param b the second key
+     * @param from number of leading characters known to be equal
+     * @return a negative number, zero or a positive number as a is less
+     * than, equal to or greater than b
+     */
+    private static int compare(CharSequence a, CharSequence b, int from) {
+        int n = Math.min(a.length(), b.length());
+        for (int i = from; i < n; i++) {
+            char x = a.charAt(i);
+            char y = b.charAt(i);
+            if (x != y) {
+                return x - y;
+            }
+        }
+        return a.length() - b.length();
+    }
+
+    /**
+     * Gets the character of key at position d.
+     *
+     * @param key the key
+     * @param d the position
+     * @return the character, or -1 if key has ended
+     */
+    private static int charAt(CharSequence key, int d) {
+        return d < key.length() ? key.charAt(d) : -1;
+    }
+
+    /**
+     * Gets byte digit d of key: the high byte of character d / 2 when d is
+     * even and its low byte when d is odd.
+     *
+     * @param key the key
+     * @param d the digit position
+     * @return the digit, or -1 if key has ended
+     */
+    private static int digit(CharSequence key, int d) {
+        int at = d >>> 1;
+        if (at >= key.length()) {
+            return -1;
+        }
+        char c = key.charAt(at);
+        return (d & 1) == 0 ? c >>> 8 : c & 0xFF;
+    }
+
+    /**
+     * Pushes a range onto the stack of msdRadixSort.
+     *
+     * @param stack the stack, with room for one more range
+     * @param top the current size of the stack
+     * @param lo first index, inclusive
+     * @param hi last index, exclusive
+     * @param d digit position to sort the range on
+     * @return the new size of the stack
+     */
+    private static int push(int[] stack, int top, int lo, int hi, int d) {
+        stack[top++] = lo;
+        stack[top++] = hi;
+        stack[top++] = d;
+        return top;
+    }
+
+    /**
+     * Makes sure the stack has room for one more range.
+     *
+     * @param stack the stack
+     * @param top the current size of the stack
+     * @return the stack, or a larger copy of it
+     */
+    private static int[] grow(int[] stack, int top) {
+        return top + 3 <= stack.length ? stack
+                : Arrays.copyOf(stack, stack.length * 2);
+    }
+
+    /**
+     * Swaps two elements of an array.
+     *
+     * @param arr the array
+     * @param i first index
+     * @param j second index
+     */
+    private static void swap(CharSequence[] arr, int i, int j) {
+        CharSequence tmp = arr[i];
+        arr[i] = arr[j];
+        arr[j] = tmp;
+    }
+}
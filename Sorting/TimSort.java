@@ -0,0 +1,577 @@
+import java.util.Comparator;
+
+/**
+ * Adaptive natural merge sort used by {@link Sorting#timSort}.
+ *
+ * The array is scanned for runs that are already ascending (or strictly
+ * descending, which are reversed in place). Runs shorter than the minimum
+ * run length are extended with binary insertion sort, pushed onto a stack
+ * and merged so that the lengths on the stack keep decreasing at least as
+ * fast as the Fibonacci numbers. Merges switch into galloping mode when one
+ * run keeps winning, so merging a run into a much longer one costs a
+ * logarithmic number of comparisons.
+ *
+ * @author Ziyu Zhang
+ * @version 1.0
+ * @param <T> data type to sort
+ */
+final class TimSort<T> {
+
+    /**
+     * Arrays shorter than this are sorted with a single binary insertion
+     * sort, and no run is ever shorter than half of it.
+     */
+    private static final int MIN_MERGE = 32;
+
+    /**
+     * Number of consecutive wins by one run before a merge starts galloping.
+     */
+    private static final int MIN_GALLOP = 7;
+
+    /**
+     * Enough stack entries for any array length up to Integer.MAX_VALUE.
+     */
+    private static final int MAX_STACK = 49;
+
+    private final T[] arr;
+    private final Comparator<T> comparator;
+    private final SortStats stats;
+    private T[] tmp;
+    private int minGallop = MIN_GALLOP;
+    private final int[] runBase = new int[MAX_STACK];
+    private final int[] runLen = new int[MAX_STACK];
+    private int stackSize;
+
+    /**
+     * Creates the sort state for one array.
+     *
+     * @param arr the array to be sorted
+     * @param comparator the comparator
+     * @param stats where to record merges and allocations, or null
+     */
+    private TimSort(T[] arr, Comparator<T> comparator, SortStats stats) {
+        this.arr = arr;
+        this.comparator = comparator;
+        this.stats = stats;
+        this.tmp = (T[]) new Object[0];
+    }
+
+    /**
+     * Sorts arr stably.
+     *
+     * @param <T> data type to sort
+     * @param arr the array to be sorted, never null
+     * @param comparator the comparator, never null
+     * @param stats where to record merges and allocations, or null
+     */
+    static <T> void sort(T[] arr, Comparator<T> comparator,
+                         SortStats stats) {
+        int remaining = arr.length;
+        if (remaining < 2) {
+            return;
+        }
+        if (remaining < MIN_MERGE) {
+            int initRunLen = countRunAndMakeAscending(arr, 0, remaining,
+                    comparator);
+            binaryInsertionSort(arr, 0, remaining, initRunLen, comparator);
+            return;
+        }
+        TimSort<T> ts = new TimSort<>(arr, comparator, stats);
+        int minRun = minRunLength(remaining);
+        int lo = 0;
+        while (remaining != 0) {
+            int runLen = countRunAndMakeAscending(arr, lo, lo + remaining,
+                    comparator);
+            if (runLen < minRun) {
+                int force = Math.min(remaining, minRun);
+                binaryInsertionSort(arr, lo, lo + force, lo + runLen,
+                        comparator);
+                runLen = force;
+            }
+            ts.pushRun(lo, runLen);
+            ts.mergeCollapse();
+            lo += runLen;
+            remaining -= runLen;
+        }
+        ts.mergeForceCollapse();
+    }
+
+    /**
+     * Computes the minimum run length for an array of length n: n itself if
+     * it is small, otherwise a number in [MIN_MERGE / 2, MIN_MERGE] such that
+     * n / minRun is close to, but no more than, a power of two.
+     *
+     * @param n the array length
+     * @return the minimum run length
+     */
+    static int minRunLength(int n) {
+        int r = 0;
+        while (n >= MIN_MERGE) {
+            r |= n & 1;
+            n >>= 1;
+        }
+        return n + r;
+    }
+
+    /**
+     * Finds the length of the run starting at lo, reversing it first if it
+     * is strictly descending. Only strict descent is reversed so that equal
+     * elements keep their order.
+     *
+     * @param <T> data type to sort
+     * @param arr the array
+     * @param lo first index of the run, inclusive
+     * @param hi last index the run may reach, exclusive
+     * @param comparator the comparator
+     * @return length of the run, now ascending
+     */
+    private static <T> int countRunAndMakeAscending(T[] arr, int lo, int hi,
+                                                    Comparator<T> comparator) {
+        int runHi = lo + 1;
+        if (runHi == hi) {
+            return 1;
+        }
+        if (comparator.compare(arr[runHi++], arr[lo]) < 0) {
+            while (runHi < hi
+                    && comparator.compare(arr[runHi], arr[runHi - 1]) < 0) {
+                runHi++;
+            }
+            for (int i = lo, j = runHi - 1; i < j; i++, j--) {
+                T t = arr[i];
+                arr[i] = arr[j];
+                arr[j] = t;
+            }
+        } else {
+            while (runHi < hi
+                    && comparator.compare(arr[runHi], arr[runHi - 1]) >= 0) {
+                runHi++;
+            }
+        }
+        return runHi - lo;
+    }
+
+    /**
+     * Binary insertion sort of arr[lo, hi) where arr[lo, start) is already
+     * sorted. Equal elements are inserted after their equals.
+     *
+     * @param <T> data type to sort
+     * @param arr the array
+     * @param lo first index, inclusive
+     * @param hi last index, exclusive
+     * @param start first index not known to be sorted
+     * @param comparator the comparator
+     */
+    private static <T> void binaryInsertionSort(T[] arr, int lo, int hi,
+                                                int start,
+                                                Comparator<T> comparator) {
+        for (; start < hi; start++) {
+            T pivot = arr[start];
+            int left = lo;
+            int right = start;
+            while (left < right) {
+                int mid = (left + right) >>> 1;
+                if (comparator.compare(pivot, arr[mid]) < 0) {
+                    right = mid;
+                } else {
+                    left = mid + 1;
+                }
+            }
+            System.arraycopy(arr, left, arr, left + 1, start - left);
+            arr[left] = pivot;
+        }
+    }
+
+    /**
+     * Pushes a run onto the run stack.
+     *
+     * @param base first index of the run
+     * @param len length of the run
+     */
+    private void pushRun(int base, int len) {
+        runBase[stackSize] = base;
+        runLen[stackSize] = len;
+        stackSize++;
+        if (stats != null) {
+            stats.reachDepth(stackSize);
+        }
+    }
+
+    /**
+     * Merges runs until the stack invariants hold again:
+     *  runLen[i - 3] > runLen[i - 2] + runLen[i - 1]
+     *  runLen[i - 2] > runLen[i - 1]
+     * Both the top three and the three below them are checked, which keeps
+     * the invariant over the whole stack.
+     */
+    private void mergeCollapse() {
+        while (stackSize > 1) {
+            int n = stackSize - 2;
+            if (n > 0 && runLen[n - 1] <= runLen[n] + runLen[n + 1]
+                    || n > 1 && runLen[n - 2] <= runLen[n] + runLen[n - 1]) {
+                if (runLen[n - 1] < runLen[n + 1]) {
+                    n--;
+                }
+            } else if (runLen[n] > runLen[n + 1]) {
+                break;
+            }
+            mergeAt(n);
+        }
+    }
+
+    /**
+     * Merges every run left on the stack.
+     */
+    private void mergeForceCollapse() {
+        while (stackSize > 1) {
+            int n = stackSize - 2;
+            if (n > 0 && runLen[n - 1] < runLen[n + 1]) {
+                n--;
+            }
+            mergeAt(n);
+        }
+    }
+
+    /**
+     * Merges stack runs i and i + 1, which must be adjacent in the array.
+     * Elements of the first run that are already in place before the second
+     * run, and elements of the second run already in place after the first,
+     * are skipped by galloping before the merge starts.
+     *
+     * @param i stack index of the first run, either the second or third from
+     * the top
+     */
+    private void mergeAt(int i) {
+        int base1 = runBase[i];
+        int len1 = runLen[i];
+        int base2 = runBase[i + 1];
+        int len2 = runLen[i + 1];
+
+        runLen[i] = len1 + len2;
+        if (i == stackSize - 3) {
+            runBase[i + 1] = runBase[i + 2];
+            runLen[i + 1] = runLen[i + 2];
+        }
+        stackSize--;
+
+        int k = gallopRight(arr[base2], arr, base1, len1, 0, comparator);
+        base1 += k;
+        len1 -= k;
+        if (len1 == 0) {
+            return;
+        }
+        len2 = gallopLeft(arr[base1 + len1 - 1], arr, base2, len2, len2 - 1,
+                comparator);
+        if (len2 == 0) {
+            return;
+        }
+        if (stats != null) {
+            stats.addMoves(len1 + len2);
+        }
+        if (len1 <= len2) {
+            mergeLo(base1, len1, base2, len2);
+        } else {
+            mergeHi(base1, len1, base2, len2);
+        }
+    }
+
+    /**
+     * Finds where key would be inserted into arr[base, base + len) before any
+     * equal elements, searching outwards from hint.
+     *
+     * @param <T> data type being searched
+     * @param key the key to insert
+     * @param arr the array
+     * @param base first index of the sorted range
+     * @param len length of the range, at least 1
+     * @param hint index relative to base to start searching from
+     * @param comparator the comparator
+     * @return k such that arr[base + k - 1] < key <= arr[base + k]
+     */
+    static <T> int gallopLeft(T key, T[] arr, int base, int len, int hint,
+                              Comparator<T> comparator) {
+        int lastOfs = 0;
+        int ofs = 1;
+        if (comparator.compare(key, arr[base + hint]) > 0) {
+            int maxOfs = len - hint;
+            while (ofs < maxOfs
+                    && comparator.compare(key, arr[base + hint + ofs]) > 0) {
+                lastOfs = ofs;
+                ofs = (ofs << 1) + 1;
+                if (ofs <= 0) {
+                    ofs = maxOfs;
+                }
+            }
+            ofs = Math.min(ofs, maxOfs);
+            lastOfs += hint;
+            ofs += hint;
+        } else {
+            int maxOfs = hint + 1;
+            while (ofs < maxOfs
+                    && comparator.compare(key, arr[base + hint - ofs]) <= 0) {
+                lastOfs = ofs;
+                ofs = (ofs << 1) + 1;
+                if (ofs <= 0) {
+                    ofs = maxOfs;
+                }
+            }
+            ofs = Math.min(ofs, maxOfs);
+            int t = lastOfs;
+            lastOfs = hint - ofs;
+            ofs = hint - t;
+        }
+        // arr[base + lastOfs] < key <= arr[base + ofs]
+        lastOfs++;
+        while (lastOfs < ofs) {
+            int m = lastOfs + ((ofs - lastOfs) >>> 1);
+            if (comparator.compare(key, arr[base + m]) > 0) {
+                lastOfs = m + 1;
+            } else {
+                ofs = m;
+            }
+        }
+        return ofs;
+    }
+
+    /**
+     * Finds where key would be inserted into arr[base, base + len) after any
+     * equal elements, searching outwards from hint.
+     *
+     * @param <T> data type being searched
+     * @param key the key to insert
+     * @param arr the array
+     * @param base first index of the sorted range
+     * @param len length of the range, at least 1
+     * @param hint index relative to base to start searching from
+     * @param comparator the comparator
+     * @return k such that arr[base + k - 1] <= key < arr[base + k]
+     */
+    static <T> int gallopRight(T key, T[] arr, int base, int len, int hint,
+                               Comparator<T> comparator) {
+        int lastOfs = 0;
+        int ofs = 1;
+        if (comparator.compare(key, arr[base + hint]) < 0) {
+            int maxOfs = hint + 1;
+            while (ofs < maxOfs
+                    && comparator.compare(key, arr[base + hint - ofs]) < 0) {
+                lastOfs = ofs;
+                ofs = (ofs << 1) + 1;
+                if (ofs <= 0) {
+                    ofs = maxOfs;
+                }
+            }
+            ofs = Math.min(ofs, maxOfs);
+            int t = lastOfs;
+            lastOfs = hint - ofs;
+            ofs = hint - t;
+        } else {
+            int maxOfs = len - hint;
+            while (ofs < maxOfs
+                    && comparator.compare(key, arr[base + hint + ofs]) >= 0) {
+                lastOfs = ofs;
+                ofs = (ofs << 1) + 1;
+                if (ofs <= 0) {
+                    ofs = maxOfs;
+                }
+            }
+            ofs = Math.min(ofs, maxOfs);
+            lastOfs += hint;
+            ofs += hint;
+        }
+        // arr[base + lastOfs] <= key < arr[base + ofs]
+        lastOfs++;
+        while (lastOfs < ofs) {
+            int m = lastOfs + ((ofs - lastOfs) >>> 1);
+            if (comparator.compare(key, arr[base + m]) < 0) {
+                ofs = m;
+            } else {
+                lastOfs = m + 1;
+            }
+        }
+        return ofs;
+    }
+
+    /**
+     * Merges two adjacent runs left to right, copying the first (shorter)
+     * run into tmp. arr[base1] must be greater than arr[base2] and the last
+     * element of the first run greater than every element of the second.
+     *
+     * @param base1 first index of the first run
+     * @param len1 length of the first run
+     * @param base2 first index of the second run, base1 + len1
+     * @param len2 length of the second run
+     */
+    private void mergeLo(int base1, int len1, int base2, int len2) {
+        T[] a = arr;
+        T[] t = ensureCapacity(len1);
+        System.arraycopy(a, base1, t, 0, len1);
+        int cursor1 = 0;
+        int cursor2 = base2;
+        int dest = base1;
+        int gallop = minGallop;
+        outer:
+        while (true) {
+            int count1 = 0;
+            int count2 = 0;
+            do {
+                if (comparator.compare(a[cursor2], t[cursor1]) < 0) {
+                    a[dest++] = a[cursor2++];
+                    count2++;
+                    count1 = 0;
+                    if (--len2 == 0) {
+                        break outer;
+                    }
+                } else {
+                    a[dest++] = t[cursor1++];
+                    count1++;
+                    count2 = 0;
+                    if (--len1 == 0) {
+                        break outer;
+                    }
+                }
+            } while ((count1 | count2) < gallop);
+
+            do {
+                count1 = gallopRight(a[cursor2], t, cursor1, len1, 0,
+                        comparator);
+                if (count1 != 0) {
+                    System.arraycopy(t, cursor1, a, dest, count1);
+                    dest += count1;
+                    cursor1 += count1;
+                    len1 -= count1;
+                    if (len1 == 0) {
+                        break outer;
+                    }
+                }
+                a[dest++] = a[cursor2++];
+                if (--len2 == 0) {
+                    break outer;
+                }
+                count2 = gallopLeft(t[cursor1], a, cursor2, len2, 0,
+                        comparator);
+                if (count2 != 0) {
+                    System.arraycopy(a, cursor2, a, dest, count2);
+                    dest += count2;
+                    cursor2 += count2;
+                    len2 -= count2;
+                    if (len2 == 0) {
+                        break outer;
+                    }
+                }
+                a[dest++] = t[cursor1++];
+                if (--len1 == 0) {
+                    break outer;
+                }
+                gallop--;
+            } while (count1 >= MIN_GALLOP || count2 >= MIN_GALLOP);
+            // leaving galloping mode makes it harder to re-enter
+            gallop = Math.max(gallop, 0) + 2;
+        }
+        minGallop = Math.max(gallop, 1);
+        if (len1 > 0) {
+            // the rest of the second run is already in place
+            System.arraycopy(t, cursor1, a, dest, len1);
+        }
+    }
+
+    /**
+     * Merges two adjacent runs right to left, copying the second (shorter)
+     * run into tmp. Same preconditions as mergeLo.
+     *
+     * @param base1 first index of the first run
+     * @param len1 length of the first run
+     * @param base2 first index of the second run, base1 + len1
+     * @param len2 length of the second run
+     */
+    private void mergeHi(int base1, int len1, int base2, int len2) {
+        T[] a = arr;
+        T[] t = ensureCapacity(len2);
+        System.arraycopy(a, base2, t, 0, len2);
+        int cursor1 = base1 + len1 - 1;
+        int cursor2 = len2 - 1;
+        int dest = base2 + len2 - 1;
+        int gallop = minGallop;
+        outer:
+        while (true) {
+            int count1 = 0;
+            int count2 = 0;
+            do {
+                if (comparator.compare(t[cursor2], a[cursor1]) < 0) {
+                    a[dest--] = a[cursor1--];
+                    count1++;
+                    count2 = 0;
+                    if (--len1 == 0) {
+                        break outer;
+                    }
+                } else {
+                    a[dest--] = t[cursor2--];
+                    count2++;
+                    count1 = 0;
+                    if (--len2 == 0) {
+                        break outer;
+                    }
+                }
+            } while ((count1 | count2) < gallop);
+
+            do {
+                count1 = len1 - gallopRight(t[cursor2], a, base1, len1,
+                        len1 - 1, comparator);
+                if (count1 != 0) {
+                    dest -= count1;
+                    cursor1 -= count1;
+                    len1 -= count1;
+                    System.arraycopy(a, cursor1 + 1, a, dest + 1, count1);
+                    if (len1 == 0) {
+                        break outer;
+                    }
+                }
+                a[dest--] = t[cursor2--];
+                if (--len2 == 0) {
+                    break outer;
+                }
+                count2 = len2 - gallopLeft(a[cursor1], t, 0, len2, len2 - 1,
+                        comparator);
+                if (count2 != 0) {
+                    dest -= count2;
+                    cursor2 -= count2;
+                    len2 -= count2;
+                    System.arraycopy(t, cursor2 + 1, a, dest + 1, count2);
+                    if (len2 == 0) {
+                        break outer;
+                    }
+                }
+                a[dest--] = a[cursor1--];
+                if (--len1 == 0) {
+                    break outer;
+                }
+                gallop--;
+            } while (count1 >= MIN_GALLOP || count2 >= MIN_GALLOP);
+            gallop = Math.max(gallop, 0) + 2;
+        }
+        minGallop = Math.max(gallop, 1);
+        if (len2 > 0) {
+            // the rest of the first run is already in place
+            System.arraycopy(t, 0, a, dest - (len2 - 1), len2);
+        }
+    }
+
+    /**
+     * Makes sure tmp can hold at least minCapacity elements. The buffer
+     * grows geometrically but never beyond half the array, which is the
+     * longest run that is ever copied out.
+     *
+     * @param minCapacity the number of elements needed
+     * @return the temp buffer
+     */
+    private T[] ensureCapacity(int minCapacity) {
+        if (tmp.length < minCapacity) {
+            int newSize = Math.max(minCapacity, tmp.length << 1);
+            newSize = Math.min(newSize, Math.max(arr.length >>> 1,
+                    minCapacity));
+            tmp = (T[]) new Object[newSize];
+            if (stats != null) {
+                stats.addScratch((long) newSize * SortStats.REFERENCE_BYTES);
+            }
+        }
+        return tmp;
+    }
+}